@@ -0,0 +1,147 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.james.status.data.icon;
+
+import android.app.Instrumentation;
+import android.app.Notification;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+
+import com.james.status.R;
+import com.james.status.data.NotificationData;
+import com.james.status.utils.AnimationTable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.core.app.NotificationCompat;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that drawing an icon that has finished animating doesn't allocate
+ * anything, as every allocation on the status bar's frame path eventually
+ * results in a GC pause that drops frames.
+ */
+@RunWith(AndroidJUnit4.class)
+public class IconDrawAllocationTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 72;
+
+    private static final int WARM_UP_FRAMES = 10;
+    private static final long WARM_UP_DELAY = 100;
+    private static final int FRAMES = 100;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void draw_textIcon_doesNotAllocate() throws InterruptedException {
+        IconData[] icon = new IconData[1];
+        instrumentation.runOnMainSync(() -> {
+            icon[0] = new TimeIconData(context);
+            icon[0].onTextUpdate("12:00");
+        });
+
+        assertDrawDoesNotAllocate(icon[0]);
+    }
+
+    @Test
+    public void draw_iconAndText_doesNotAllocate() throws InterruptedException {
+        IconData[] icon = new IconData[1];
+        instrumentation.runOnMainSync(() -> {
+            icon[0] = new BatteryIconData(context);
+            icon[0].onIconUpdate(3);
+            icon[0].onTextUpdate("50%");
+        });
+
+        assertDrawDoesNotAllocate(icon[0]);
+    }
+
+    @Test
+    public void draw_notifications_doesNotAllocate() throws InterruptedException {
+        IconData[] icon = new IconData[1];
+        instrumentation.runOnMainSync(() -> {
+            icon[0] = new NotificationsIconData(context);
+            for (int i = 0; i < 3; i++) {
+                Notification notification = new NotificationCompat.Builder(context)
+                        .setSmallIcon(R.drawable.ic_notification)
+                        .setContentTitle("Notification " + i)
+                        .setGroup("group" + i)
+                        .build();
+
+                icon[0].onMessage("key" + i, new NotificationData(notification, i, context.getPackageName()));
+            }
+        });
+
+        assertDrawDoesNotAllocate(icon[0]);
+    }
+
+    /**
+     * Draw a few frames of an icon so that everything it creates lazily
+     * (including any bitmaps that are scaled in the background) exists,
+     * then count the allocations made while drawing it on the main thread.
+     *
+     * @param icon the icon to draw
+     */
+    private void assertDrawDoesNotAllocate(IconData icon) throws InterruptedException {
+        AnimationTable table = new AnimationTable();
+        table.setAnimated(false);
+        instrumentation.runOnMainSync(() -> icon.setAnimationTable(table));
+
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            instrumentation.runOnMainSync(() -> drawFrame(icon, table));
+            Thread.sleep(WARM_UP_DELAY);
+            instrumentation.waitForIdleSync();
+        }
+
+        int[] allocations = new int[1];
+        instrumentation.runOnMainSync(() -> {
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocCount();
+            for (int i = 0; i < FRAMES; i++)
+                drawFrame(icon, table);
+
+            allocations[0] = Debug.getThreadAllocCount();
+            Debug.stopAllocCounting();
+        });
+
+        assertEquals("Objects allocated while drawing " + icon.getClass().getSimpleName(), 0, allocations[0]);
+    }
+
+    private void drawFrame(IconData icon, AnimationTable table) {
+        table.next(System.nanoTime());
+        int width = icon.getWidth(HEIGHT, -1);
+        icon.getWidth(HEIGHT, width > 0 ? width : WIDTH);
+        icon.draw(canvas, 0, WIDTH);
+    }
+}
@@ -67,6 +67,7 @@ public class IconAdapter extends RecyclerView.Adapter<IconAdapter.ViewHolder> {
         itemView = holder.v;
 
         PreferenceData.ICON_POSITION.setValue(activity, position, icon.getIdentifierArgs());
+        icon.reloadConfig();
 
         holder.checkBox.setText(icon.getTitle());
         holder.checkBox.setOnCheckedChangeListener(null);
@@ -89,6 +90,7 @@ public class IconAdapter extends RecyclerView.Adapter<IconAdapter.ViewHolder> {
                     holder.checkBox.setOnCheckedChangeListener(this);
                 } else {
                     PreferenceData.ICON_VISIBILITY.setValue(activity, isChecked, icon.getIdentifierArgs());
+                    icon.reloadConfig();
                     StaticUtils.updateStatusService(activity, false);
 
                     notifyItemChanged(holder.getAdapterPosition());
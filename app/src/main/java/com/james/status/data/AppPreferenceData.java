@@ -35,12 +35,15 @@ import androidx.annotation.Nullable;
 public class AppPreferenceData {
 
     private String componentName;
+    private PreferenceKeys keys, packageKeys;
     private String label;
 
     private List<AppPreferenceData> activities;
 
     public AppPreferenceData(String componentName) {
         this.componentName = componentName;
+        keys = PreferenceKeys.get(componentName);
+        packageKeys = PreferenceKeys.get(getPackageName());
     }
 
     /**
@@ -145,37 +148,37 @@ public class AppPreferenceData {
 
     @Nullable
     public Integer getColor(Context context) {
-        return PreferenceData.APP_COLOR.getSpecificOverriddenValue(context, (Integer) PreferenceData.APP_COLOR.getSpecificOverriddenValue(context, null, getPackageName()), getIdentifierArgs());
+        return PreferenceData.APP_COLOR.getSpecificOverriddenValue(context, (Integer) PreferenceData.APP_COLOR.getSpecificOverriddenValue(context, null, packageKeys), keys);
     }
 
     @Nullable
     public Integer getIconColor(Context context) {
-        return PreferenceData.APP_ICON_COLOR.getSpecificOverriddenValue(context, (Integer) PreferenceData.APP_ICON_COLOR.getSpecificOverriddenValue(context, null, getPackageName()), getIdentifierArgs());
+        return PreferenceData.APP_ICON_COLOR.getSpecificOverriddenValue(context, (Integer) PreferenceData.APP_ICON_COLOR.getSpecificOverriddenValue(context, null, packageKeys), keys);
     }
 
     @Nullable
     public Integer getTextColor(Context context) {
-        return PreferenceData.APP_TEXT_COLOR.getSpecificOverriddenValue(context, (Integer) PreferenceData.APP_TEXT_COLOR.getSpecificOverriddenValue(context, null, getPackageName()), getIdentifierArgs());
+        return PreferenceData.APP_TEXT_COLOR.getSpecificOverriddenValue(context, (Integer) PreferenceData.APP_TEXT_COLOR.getSpecificOverriddenValue(context, null, packageKeys), keys);
     }
 
     public boolean isFullScreen(Context context) {
-        return PreferenceData.APP_FULLSCREEN.getSpecificOverriddenValue(context, (Boolean) PreferenceData.APP_FULLSCREEN.getSpecificValue(context, getPackageName()), getIdentifierArgs());
+        return PreferenceData.APP_FULLSCREEN.getBoolean(context, PreferenceData.APP_FULLSCREEN.getBoolean(context, packageKeys), keys);
     }
 
     public boolean isFullScreenIgnore(Context context) {
-        return PreferenceData.APP_FULLSCREEN_IGNORE.getSpecificOverriddenValue(context, (Boolean) PreferenceData.APP_FULLSCREEN_IGNORE.getSpecificValue(context, getPackageName()), getIdentifierArgs());
+        return PreferenceData.APP_FULLSCREEN_IGNORE.getBoolean(context, PreferenceData.APP_FULLSCREEN_IGNORE.getBoolean(context, packageKeys), keys);
     }
 
     @Nullable
     public Integer getColorCache(Context context, Integer version) {
-        if (version.equals(PreferenceData.APP_COLOR_CACHE_VERSION.getSpecificOverriddenValue(context, null, getIdentifierArgs())))
-            return PreferenceData.APP_COLOR_CACHE.getSpecificOverriddenValue(context, null, getIdentifierArgs());
+        if (version.equals(PreferenceData.APP_COLOR_CACHE_VERSION.getSpecificOverriddenValue(context, null, keys)))
+            return PreferenceData.APP_COLOR_CACHE.getSpecificOverriddenValue(context, null, keys);
         else return null;
     }
 
     public void setColorCache(Context context, int version, int color) {
-        PreferenceData.APP_COLOR_CACHE.setValue(context, color, getIdentifierArgs());
-        PreferenceData.APP_COLOR_CACHE_VERSION.setValue(context, version, getIdentifierArgs());
+        PreferenceData.APP_COLOR_CACHE.setValue(context, color, keys);
+        PreferenceData.APP_COLOR_CACHE_VERSION.setValue(context, version, keys);
     }
 
     public void setActivities(List<AppPreferenceData> activities) {
@@ -228,7 +231,7 @@ public class AppPreferenceData {
                 ),
                 preference -> {
                     if (preference.equals(PreferenceData.APP_FULLSCREEN.getDefaultValue()))
-                        PreferenceData.APP_FULLSCREEN.setValue(context, null, getIdentifierArgs());
+                        PreferenceData.APP_FULLSCREEN.setValue(context, null, keys);
                 }
         ));
 
@@ -241,7 +244,7 @@ public class AppPreferenceData {
                 ),
                 preference -> {
                     if (preference.equals(PreferenceData.APP_FULLSCREEN_IGNORE.getDefaultValue()))
-                        PreferenceData.APP_FULLSCREEN_IGNORE.setValue(context, null, getIdentifierArgs());
+                        PreferenceData.APP_FULLSCREEN_IGNORE.setValue(context, null, keys);
                 }
         ));
 
@@ -249,7 +252,7 @@ public class AppPreferenceData {
     }
 
     public String[] getIdentifierArgs() {
-        return new String[]{componentName};
+        return keys.getArgs();
     }
 
 }
@@ -22,6 +22,8 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -49,6 +51,8 @@ public class IconStyleData implements Parcelable {
     public int[] resource = new int[0];
     public String[] path = new String[0];
     private Map<Integer, Bitmap> icons;
+    private Atlas atlas;
+    private Drawable[] vectors;
 
     public IconStyleData(String name, int type, @DrawableRes int... resource) {
         this.name = name;
@@ -118,6 +122,44 @@ public class IconStyleData implements Parcelable {
         }
     }
 
+    /**
+     * Determine whether the icons in the style can be drawn directly
+     * onto a canvas at any size, without being rasterized first.
+     *
+     * @return True if the style is made of vector drawables.
+     */
+    public boolean isVector() {
+        return type == TYPE_VECTOR;
+    }
+
+    /**
+     * Get a vector drawable of the style at a particular index, to be
+     * drawn directly onto a canvas. Unlike getDrawable(), the returned
+     * instance is kept and reused by future calls, so any bounds or color
+     * filter that are set on it will remain until they are changed.
+     *
+     * @param context               The current application context.
+     * @param value                 The index to obtain.
+     * @return The vector drawable, or null if the style
+     *                              isn't a vector style or it doesn't exist.
+     */
+    @Nullable
+    public Drawable getVector(Context context, int value) {
+        if (!isVector() || value < 0 || value >= getSize())
+            return null;
+
+        if (vectors == null)
+            vectors = new Drawable[getSize()];
+
+        if (vectors[value] == null) {
+            Drawable drawable = getDrawable(context, value);
+            if (drawable != null)
+                vectors[value] = drawable.mutate();
+        }
+
+        return vectors[value];
+    }
+
     /**
      * Get a bitmap from the style at a particular index. This will
      * also cache the created bitmaps to increase performance of future
@@ -142,6 +184,98 @@ public class IconStyleData implements Parcelable {
         }
     }
 
+    /**
+     * Get an atlas containing every icon in the style, rasterized at the
+     * given height. Only the most recently requested size is kept, as an
+     * icon only ever uses one style at one size at a time.
+     *
+     * @param context               The current application context.
+     * @param size                  The height (px) to draw the icons at.
+     * @param isHardware            Whether the atlas should be stored
+     *                              as a hardware bitmap.
+     * @return The atlas of the style's icons, or null
+     *                              if none of them could be drawn.
+     */
+    @Nullable
+    public Atlas getAtlas(Context context, int size, boolean isHardware) {
+        if (atlas == null || atlas.size != size)
+            atlas = createAtlas(context, size, isHardware);
+        else atlas = atlas.withHardware(isHardware);
+
+        return atlas;
+    }
+
+    /**
+     * Get the most recently created atlas of the style, regardless of its size.
+     *
+     * @return The current atlas, or null if there isn't one.
+     */
+    @Nullable
+    public Atlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Replace the cached atlas of the style, for example with one that
+     * was created on a background thread by createAtlas().
+     *
+     * @param atlas                 The new atlas of the style.
+     */
+    public void setAtlas(@Nullable Atlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Rasterize every icon in the style into a new atlas, without caching
+     * it. As this doesn't modify the style, it can be called from any thread.
+     *
+     * @param context               The current application context.
+     * @param size                  The height (px) to draw the icons at.
+     * @param isHardware            Whether the atlas should be stored
+     *                              as a hardware bitmap.
+     * @return The created atlas, or null if none of
+     *                              the icons could be drawn.
+     */
+    @Nullable
+    public Atlas createAtlas(Context context, int size, boolean isHardware) {
+        if (size <= 0)
+            return null;
+
+        Drawable[] drawables = new Drawable[getSize()];
+        Rect[] sources = new Rect[getSize()];
+        int width = 0;
+        for (int i = 0; i < drawables.length; i++) {
+            drawables[i] = getDrawable(context, i);
+            if (drawables[i] != null) {
+                int intrinsicWidth = drawables[i].getIntrinsicWidth(), intrinsicHeight = drawables[i].getIntrinsicHeight();
+                int iconWidth = intrinsicWidth > 0 && intrinsicHeight > 0 ? Math.round((float) size * intrinsicWidth / intrinsicHeight) : size;
+                sources[i] = new Rect(width, 0, width + iconWidth, size);
+                width += iconWidth;
+            }
+        }
+
+        if (width == 0)
+            return null;
+
+        Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(width, size, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < drawables.length; i++) {
+            if (drawables[i] != null) {
+                drawables[i].setBounds(sources[i]);
+                drawables[i].draw(canvas);
+            }
+        }
+
+        return new Atlas(isHardware ? com.james.status.utils.ImageUtils.toHardwareBitmap(bitmap) : bitmap, size, sources);
+    }
+
     /**
      * Write the icon style to a SharedPreferences instance.
      *
@@ -149,12 +283,8 @@ public class IconStyleData implements Parcelable {
      * @param prefix                The preferences prefix.
      */
     public void writeToSharedPreferences(SharedPreferences.Editor editor, String prefix) {
-        if (type == TYPE_FILE) {
-            editor.putInt(prefix + name + "-length", getSize());
-            for (int i = 0; i < getSize(); i++) {
-                editor.putString(prefix + name + "-" + i, path[i]);
-            }
-        }
+        if (type == TYPE_FILE)
+            editor.putString(prefix + name, PreferenceData.encodeArray(path));
     }
 
     /**
@@ -167,7 +297,20 @@ public class IconStyleData implements Parcelable {
      */
     @Nullable
     public static IconStyleData fromSharedPreferences(SharedPreferences prefs, String prefix, String name) {
-        if (prefs.contains(prefix + name + "-length")) {
+        String value = null;
+        try {
+            value = prefs.getString(prefix + name, null);
+        } catch (ClassCastException ignored) {
+        }
+
+        if (value != null) {
+            try {
+                return new IconStyleData(name, PreferenceData.decodeArray(value));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        } else if (prefs.contains(prefix + name + "-length")) {
+            //styles written before PREF_VERSION 2, in case they haven't been migrated yet
             String[] path = new String[prefs.getInt(prefix + name + "-length", 0)];
             for (int i = 0; i < path.length; i++) {
                 path[i] = prefs.getString(prefix + name + "-" + i, null);
@@ -177,6 +320,73 @@ public class IconStyleData implements Parcelable {
         } else return null;
     }
 
+    /**
+     * A single bitmap containing all of the icons in a style, drawn
+     * side by side at the same height.
+     */
+    public static class Atlas {
+
+        public final Bitmap bitmap;
+        public final int size;
+        private final Rect[] sources;
+
+        private Atlas(Bitmap bitmap, int size, Rect[] sources) {
+            this.bitmap = bitmap;
+            this.size = size;
+            this.sources = sources;
+        }
+
+        /**
+         * Determine whether the atlas contains an icon at a particular index.
+         *
+         * @param value                 The index of the icon.
+         * @return True if the icon exists.
+         */
+        public boolean hasIcon(int value) {
+            return value >= 0 && value < sources.length && sources[value] != null;
+        }
+
+        /**
+         * Get the area of the atlas bitmap that contains a particular icon.
+         *
+         * @param value                 The index of the icon.
+         * @return The bounds of the icon in the atlas, or
+         *                              null if it doesn't exist.
+         */
+        @Nullable
+        public Rect getSource(int value) {
+            return hasIcon(value) ? sources[value] : null;
+        }
+
+        /**
+         * Determine whether the atlas is stored as a hardware bitmap,
+         * which can only be drawn by hardware accelerated canvases.
+         *
+         * @return True if the atlas is a hardware bitmap.
+         */
+        public boolean isHardware() {
+            return com.james.status.utils.ImageUtils.isHardwareBitmap(bitmap);
+        }
+
+        /**
+         * Get a version of the atlas that is (or isn't) stored as a
+         * hardware bitmap.
+         *
+         * @param isHardware            Whether the atlas should be a
+         *                              hardware bitmap.
+         * @return The converted atlas, or this atlas if
+         *                              it doesn't need to be converted.
+         */
+        public Atlas withHardware(boolean isHardware) {
+            if (isHardware == isHardware())
+                return this;
+
+            Bitmap bitmap = isHardware ? com.james.status.utils.ImageUtils.toHardwareBitmap(this.bitmap)
+                    : com.james.status.utils.ImageUtils.toSoftwareBitmap(this.bitmap);
+            return bitmap != this.bitmap ? new Atlas(bitmap, size, sources) : this;
+        }
+    }
+
     public static final Creator<IconStyleData> CREATOR = new Creator<IconStyleData>() {
         @Override
         public IconStyleData createFromParcel(Parcel in) {
@@ -35,11 +35,12 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.service.notification.StatusBarNotification;
 
+import com.james.status.utils.tasks.ScaleTask;
+
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.res.ResourcesCompat;
 import me.jfenn.androidutils.ImageUtils;
-import me.jfenn.androidutils.anim.AnimatedFloat;
 
 public class NotificationData implements Parcelable {
 
@@ -47,10 +48,11 @@ public class NotificationData implements Parcelable {
     public int priority, id, iconRes, color = Color.BLACK;
     private boolean isAlert, isOngoing;
     private Bitmap icon, scaledIcon;
+    private int scalingHeight = -1;
+    private boolean isScalingHardware;
     private Bitmap largeIcon;
     private Icon unloadedIcon, unloadedLargeIcon;
 
-    private AnimatedFloat scale;
 
     public PendingIntent intent;
     public ActionData[] actions;
@@ -235,23 +237,59 @@ public class NotificationData implements Parcelable {
 
     /**
      * Get an icon bitmap with a specified height. If the current
-     * bitmap matches the height, great! if not, it's scaled to
-     * match it (and a reference to the scaled version is kept
-     * as "cache").
+     * bitmap matches the height, great! if not, a version scaled to
+     * match it is created on a background thread (and a reference to
+     * it is kept as "cache"). Until that is done, the closest bitmap
+     * that is available is returned, which should be scaled when drawn.
+     *
+     * Once the icon is at its final size, it can be stored as a hardware
+     * bitmap, which can then only be drawn by hardware accelerated canvases;
+     * the full res icon is always kept as a normal bitmap to scale from.
      *
      * @param height            The height to generate a bitmap at.
+     * @param isHardware        Whether the scaled bitmap should be stored
+     *                          as a hardware bitmap.
+     * @param listener          Called once the scaled bitmap is available.
      * @return The created bitmap, or null if things
      *                          went wrong.
      */
     @Nullable
-    public Bitmap getIcon(float height) {
-        if (icon != null && icon.getHeight() == Math.round(height))
+    public Bitmap getIcon(float height, final boolean isHardware, @Nullable Runnable listener) {
+        final int scaledHeight = Math.round(height);
+        if (icon == null)
+            return scaledIcon;
+        else if (scaledIcon != null && scaledIcon.getHeight() == scaledHeight && com.james.status.utils.ImageUtils.isHardwareBitmap(scaledIcon) == isHardware)
+            return scaledIcon;
+        else if (icon.getHeight() == scaledHeight && !isHardware)
             return icon;
 
-        if (icon != null && (scaledIcon == null || scaledIcon.getHeight() != Math.round(height)))
-            scaledIcon = Bitmap.createScaledBitmap(icon, Math.round(height * icon.getWidth() / icon.getHeight()), Math.round(height), true);
+        if (scalingHeight != scaledHeight || isScalingHardware != isHardware) {
+            scalingHeight = scaledHeight;
+            isScalingHardware = isHardware;
+
+            final Bitmap source = icon;
+            new ScaleTask<>(new ScaleTask.Scalable<Bitmap>() {
+                @Override
+                public Bitmap scale() {
+                    Bitmap bitmap = Bitmap.createScaledBitmap(source, Math.round((float) scaledHeight * source.getWidth() / source.getHeight()), scaledHeight, true);
+                    return isHardware ? com.james.status.utils.ImageUtils.toHardwareBitmap(bitmap) : bitmap;
+                }
 
-        return scaledIcon;
+                @Override
+                public void onScaled(@Nullable Bitmap result) {
+                    if (scalingHeight == scaledHeight && isScalingHardware == isHardware)
+                        scalingHeight = -1;
+
+                    if (result != null && source == icon) {
+                        scaledIcon = result;
+                        if (listener != null)
+                            listener.run();
+                    }
+                }
+            }).start();
+        }
+
+        return scaledIcon != null && !com.james.status.utils.ImageUtils.isHardwareBitmap(scaledIcon) ? scaledIcon : icon;
     }
 
     /**
@@ -363,15 +401,6 @@ public class NotificationData implements Parcelable {
         }
     }
 
-    public AnimatedFloat getScale() {
-        if (scale == null) {
-            scale = new AnimatedFloat(0);
-            scale.to(1f);
-        }
-
-        return scale;
-    }
-
     public boolean equals(NotificationData obj) {
         return super.equals(obj) || (obj != null && obj.packageName.matches(packageName) && obj.id == id);
     }
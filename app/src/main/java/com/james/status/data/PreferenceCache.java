@@ -0,0 +1,199 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A process-wide copy of one of the app's SharedPreferences stores, which
+ * is read once and then kept in sync by an OnSharedPreferenceChangeListener,
+ * so that reading a preference is only a map lookup. Values are stored as
+ * the (already boxed) objects returned by SharedPreferences.getAll(), so
+ * reading them doesn't allocate anything either.
+ *
+ * Each store is only read the first time that one of its preferences is.
+ *
+ * This can be read from any thread; changes are applied on the main thread.
+ */
+class PreferenceCache implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+    private static final int SPLIT_VERSION = 3;
+    private static final Class<?>[] TYPES = new Class<?>[]{Integer.class, Boolean.class, String.class, Long.class, Float.class, Set.class};
+
+    private static volatile PreferenceCache[] instances = new PreferenceCache[PreferenceData.Store.values().length];
+
+    private SharedPreferences prefs;
+    private Map<String, Object> values;
+
+    private PreferenceCache(Context context, PreferenceData.Store store) {
+        prefs = store.getPreferences(context.getApplicationContext());
+        values = new ConcurrentHashMap<>();
+
+        prefs.registerOnSharedPreferenceChangeListener(this);
+        reload();
+    }
+
+    static PreferenceCache get(Context context, PreferenceData.Store store) {
+        PreferenceCache cache = instances[store.ordinal()];
+        if (cache == null) {
+            synchronized (PreferenceCache.class) {
+                cache = instances[store.ordinal()];
+                if (cache == null) {
+                    //make sure that nothing is read from (or removed from) a store before it has been split
+                    if (store != PreferenceData.Store.GLOBAL && !get(context, PreferenceData.Store.GLOBAL).isSplit())
+                        PreferenceData.splitStores(context);
+
+                    cache = new PreferenceCache(context, store);
+
+                    //creating a store can create the global cache, so this has to be read again
+                    PreferenceCache[] caches = instances.clone();
+                    caches[store.ordinal()] = cache;
+                    instances = caches;
+                }
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Determine whether the preferences have been split into their
+     * stores yet; this should only be called on the global cache.
+     *
+     * @return true if the preferences have been moved out of the global store
+     */
+    private boolean isSplit() {
+        Object version = values.get(PreferenceData.PREF_VERSION.name());
+        return version instanceof Integer && (Integer) version >= SPLIT_VERSION;
+    }
+
+    SharedPreferences.Editor edit() {
+        return prefs.edit();
+    }
+
+    /**
+     * Read every preference into the cache again.
+     */
+    private void reload() {
+        values.clear();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getValue() != null)
+                values.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Get the value of a preference.
+     *
+     * @param key the key of the preference
+     * @return the value of the preference, or null if it isn't set
+     */
+    @Nullable
+    Object get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Update the value of a preference in the cache immediately, before
+     * it has been written to the SharedPreferences; used when writing a
+     * value so that it can be read again before the write is applied.
+     *
+     * @param key   the key of the preference
+     * @param value the new value of the preference, or null if it was removed
+     */
+    void put(String key, @Nullable Object value) {
+        if (value != null)
+            values.put(key, value);
+        else values.remove(key);
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences prefs, @Nullable String key) {
+        if (key == null) {
+            reload();
+            return;
+        }
+
+        //this is also called for the values that have already been put() when writing them
+        Object cached = values.get(key);
+        Object value = read(prefs, key, cached);
+        if (value != null ? !value.equals(cached) : cached != null)
+            put(key, value);
+    }
+
+    /**
+     * Read the value of a single preference, trying the type of the value
+     * that is already cached first, so that a change doesn't need to copy
+     * the entire store using getAll().
+     *
+     * @param prefs  the SharedPreferences to read the value from
+     * @param key    the key of the preference
+     * @param cached the value that is currently cached, if any
+     * @return the value of the preference, or null if it isn't set
+     */
+    @Nullable
+    private static Object read(SharedPreferences prefs, String key, @Nullable Object cached) {
+        if (!prefs.contains(key))
+            return null;
+
+        if (cached != null) {
+            Object value = read(prefs, key, cached.getClass());
+            if (value != null)
+                return value;
+        }
+
+        for (Class<?> type : TYPES) {
+            Object value = read(prefs, key, type);
+            if (value != null)
+                return value;
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static Object read(SharedPreferences prefs, String key, Class<?> type) {
+        try {
+            if (type == Integer.class)
+                return prefs.getInt(key, 0);
+            else if (type == Boolean.class)
+                return prefs.getBoolean(key, false);
+            else if (type == String.class)
+                return prefs.getString(key, null);
+            else if (type == Long.class)
+                return prefs.getLong(key, 0);
+            else if (type == Float.class)
+                return prefs.getFloat(key, 0);
+            else if (Set.class.isAssignableFrom(type))
+                return prefs.getStringSet(key, null);
+        } catch (ClassCastException ignored) {
+        }
+
+        return null;
+    }
+}
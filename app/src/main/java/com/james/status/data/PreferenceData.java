@@ -26,14 +26,19 @@ import android.preference.PreferenceManager;
 import android.widget.Toast;
 
 import com.google.gson.Gson;
+import com.james.status.data.icon.IconData;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
@@ -55,6 +60,10 @@ public enum PreferenceData {
     //STATUS_BUMP_MODE(false), TODO: #137
     STATUS_BACKGROUND_ANIMATIONS(true),
     STATUS_ICON_ANIMATIONS(true),
+    STATUS_FRAME_RATE(60),
+    STATUS_FRAME_CACHE(true),
+    STATUS_RENDER_THREAD(false),
+    STATUS_ADAPTIVE_QUALITY(true),
     STATUS_HIDE_ON_VOLUME(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP),
     STATUS_PERSISTENT_NOTIFICATION(true),
     STATUS_IGNORE_PERMISSION_CHECKING(false),
@@ -94,27 +103,54 @@ public enum PreferenceData {
     APP_NOTIFICATIONS_MIN_PRIORITY(NotificationCompat.PRIORITY_LOW),
     APP_NOTIFICATIONS_IGNORE_ONGOING(false);
 
-    public static final int VERSION = 1;
+    public static final int VERSION = 3;
 
     private String name;
     private Object defaultValue;
+    private Store store;
 
     PreferenceData(Object value) {
         name = name();
         defaultValue = value;
+        store = Store.GLOBAL;
     }
 
     PreferenceData(String name, Object value) {
         this.name = name;
         defaultValue = value;
+
+        if (name().startsWith("ICON_"))
+            store = Store.ICONS;
+        else if (name().startsWith("APP_COLOR_CACHE"))
+            store = Store.CACHES;
+        else if (name().startsWith("APP_"))
+            store = Store.APPS;
+        else store = Store.GLOBAL;
+    }
+
+    /**
+     * Get the SharedPreferences file that the preference is stored in.
+     *
+     * @return the store that the preference belongs to
+     */
+    public Store getStore() {
+        return store;
     }
 
     public String getName(@Nullable String... args) {
         if (args != null && args.length > 0)
-            return String.format(name, (Object[]) args);
+            return PreferenceKeys.get(args).getKey(this);
         else return name;
     }
 
+    /**
+     * Format the key of the preference with a set of identifier args; this
+     * should only be called by PreferenceKeys, which keeps the result.
+     */
+    String formatName(String[] args) {
+        return String.format(name, (Object[]) args);
+    }
+
     public <T> T getDefaultValue() {
         try {
             return (T) defaultValue;
@@ -135,94 +171,278 @@ public enum PreferenceData {
         return getSpecificOverriddenValue(context, (T) getDefaultValue(), args);
     }
 
+    public <T> T getSpecificValue(Context context, PreferenceKeys keys) {
+        return getValueOfKey(context, (T) getDefaultValue(), keys.getKey(this));
+    }
+
     public <T> T getSpecificOverriddenValue(Context context, @Nullable T defaultValue, @Nullable String... args) {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        String name = getName(args);
+        return getValueOfKey(context, defaultValue, getName(args));
+    }
+
+    public <T> T getSpecificOverriddenValue(Context context, @Nullable T defaultValue, PreferenceKeys keys) {
+        return getValueOfKey(context, defaultValue, keys.getKey(this));
+    }
+
+    private <T> T getValueOfKey(Context context, @Nullable T defaultValue, String name) {
+        PreferenceCache prefs = PreferenceCache.get(context, store);
         T type = defaultValue != null ? defaultValue : (T) getDefaultValue();
 
-        if (type instanceof Object[] && prefs.contains(name + "-length")) {
+        if (type instanceof Object[]) {
+            Object value = prefs.get(name);
             try {
-                int length = prefs.getInt(name + "-length", 0);
-
-                Object[] array;
-                if (type instanceof Boolean[])
-                    array = new Boolean[length];
-                else if (type instanceof Integer[])
-                    array = new Integer[length];
-                else if (type instanceof String[])
-                    array = new String[length];
-                else throw new TypeMismatchException(this);
-
-                for (int i = 0; i < array.length; i++) {
-                    if (array instanceof Boolean[])
-                        array[i] = prefs.contains(name + "-" + i) ? prefs.getBoolean(name + "-" + i, false) : null;
-                    else if (array instanceof Integer[])
-                        array[i] = prefs.contains(name + "-" + i) ? prefs.getInt(name + "-" + i, 0) : null;
-                    else if (array instanceof String[])
-                        array[i] = prefs.getString(name + "-" + i, "");
-                    else throw new TypeMismatchException(this);
+                if (value != null)
+                    return (T) toArray(decodeArray((String) value), (Object[]) type);
+                else if (prefs.contains(name + "-length")) {
+                    //arrays written before PREF_VERSION 2, in case they haven't been migrated yet
+                    String[] array = new String[(Integer) prefs.get(name + "-length")];
+                    for (int i = 0; i < array.length; i++) {
+                        Object item = prefs.get(name + "-" + i);
+                        array[i] = item != null ? String.valueOf(item) : null;
+                    }
+
+                    return (T) toArray(array, (Object[]) type);
                 }
-
-                return (T) array;
-            } catch (ClassCastException e) {
+            } catch (ClassCastException | IllegalArgumentException | IndexOutOfBoundsException | NullPointerException e) {
                 throw new TypeMismatchException(this, type.getClass());
             }
-        } else if (prefs.contains(name)) {
-            try {
-                if (type instanceof Boolean)
-                    return (T) new Boolean(prefs.getBoolean(name, defaultValue != null ? (Boolean) defaultValue : false));
-                else if (type instanceof Integer)
-                    return (T) new Integer(prefs.getInt(name, defaultValue != null ? (Integer) defaultValue : -1));
-                else if (type instanceof String)
-                    return (T) prefs.getString(name, defaultValue != null ? (String) defaultValue : "");
-            } catch (ClassCastException e) {
-                throw new TypeMismatchException(this, type.getClass());
+        } else {
+            Object value = prefs.get(name);
+            if (value != null) {
+                try {
+                    if (type instanceof Boolean)
+                        return (T) (Boolean) value;
+                    else if (type instanceof Integer)
+                        return (T) (Integer) value;
+                    else if (type instanceof String)
+                        return (T) (String) value;
+                } catch (ClassCastException e) {
+                    throw new TypeMismatchException(this, type.getClass());
+                }
             }
         }
 
         return defaultValue;
     }
 
+    /**
+     * Convert the decoded items of an array preference to the type of
+     * array that the preference holds.
+     */
+    private Object[] toArray(String[] items, Object[] type) {
+        if (type instanceof String[]) {
+            for (int i = 0; i < items.length; i++) {
+                if (items[i] == null)
+                    items[i] = "";
+            }
+
+            return items;
+        }
+
+        Object[] array;
+        if (type instanceof Boolean[])
+            array = new Boolean[items.length];
+        else if (type instanceof Integer[])
+            array = new Integer[items.length];
+        else throw new TypeMismatchException(this);
+
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == null || items[i].isEmpty())
+                continue;
+
+            if (array instanceof Boolean[])
+                array[i] = Boolean.parseBoolean(items[i]);
+            else array[i] = Integer.parseInt(items[i]);
+        }
+
+        return array;
+    }
+
+    public boolean getBoolean(Context context) {
+        return getBooleanOfKey(context, (Boolean) defaultValue, name);
+    }
+
+    public boolean getBoolean(Context context, PreferenceKeys keys) {
+        return getBooleanOfKey(context, (Boolean) defaultValue, keys.getKey(this));
+    }
+
+    public boolean getBoolean(Context context, boolean defaultValue, PreferenceKeys keys) {
+        return getBooleanOfKey(context, defaultValue, keys.getKey(this));
+    }
+
+    public int getInt(Context context) {
+        return getIntOfKey(context, (Integer) defaultValue, name);
+    }
+
+    public int getInt(Context context, PreferenceKeys keys) {
+        return getIntOfKey(context, (Integer) defaultValue, keys.getKey(this));
+    }
+
+    public int getInt(Context context, int defaultValue, PreferenceKeys keys) {
+        return getIntOfKey(context, defaultValue, keys.getKey(this));
+    }
+
+    @ColorInt
+    public int getColor(Context context) {
+        return getInt(context);
+    }
+
+    @ColorInt
+    public int getColor(Context context, PreferenceKeys keys) {
+        return getInt(context, keys);
+    }
+
+    @ColorInt
+    public int getColor(Context context, @ColorInt int defaultValue, PreferenceKeys keys) {
+        return getInt(context, defaultValue, keys);
+    }
+
+    public String getString(Context context) {
+        return getStringOfKey(context, (String) defaultValue, name);
+    }
+
+    public String getString(Context context, PreferenceKeys keys) {
+        return getStringOfKey(context, (String) defaultValue, keys.getKey(this));
+    }
+
+    @Nullable
+    public String getString(Context context, @Nullable String defaultValue, PreferenceKeys keys) {
+        return getStringOfKey(context, defaultValue, keys.getKey(this));
+    }
+
+    private boolean getBooleanOfKey(Context context, boolean defaultValue, String name) {
+        Object value = PreferenceCache.get(context, store).get(name);
+        if (value == null)
+            return defaultValue;
+        else if (value instanceof Boolean)
+            return (Boolean) value;
+        else throw new TypeMismatchException(this, Boolean.class);
+    }
+
+    private int getIntOfKey(Context context, int defaultValue, String name) {
+        Object value = PreferenceCache.get(context, store).get(name);
+        if (value == null)
+            return defaultValue;
+        else if (value instanceof Integer)
+            return (Integer) value;
+        else throw new TypeMismatchException(this, Integer.class);
+    }
+
+    @Nullable
+    private String getStringOfKey(Context context, @Nullable String defaultValue, String name) {
+        Object value = PreferenceCache.get(context, store).get(name);
+        if (value == null)
+            return defaultValue;
+        else if (value instanceof String)
+            return (String) value;
+        else throw new TypeMismatchException(this, String.class);
+    }
+
     public <T> void setValue(Context context, @Nullable T value) {
         setValue(context, value, (String[]) null);
     }
 
     public <T> void setValue(Context context, @Nullable T value, @Nullable String... args) {
-        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
-        String name = getName(args);
+        setValueOfKey(context, value, getName(args));
+    }
 
-        if (value == null)
-            editor.remove(name + (defaultValue instanceof Object[] ? "-length" : ""));
-        else if (value instanceof Object[]) {
-            Object[] array = (Object[]) value;
-
-            for (int i = 0; i < array.length; i++) {
-                Object item = array[i];
-                if (item instanceof Boolean)
-                    editor.putBoolean(name + "-" + i, (boolean) item);
-                else if (item instanceof Integer)
-                    editor.putInt(name + "-" + i, (int) item);
-                else if (item instanceof String)
-                    editor.putString(name + "-" + i, (String) item);
-                else throw new TypeMismatchException(this);
+    public <T> void setValue(Context context, @Nullable T value, PreferenceKeys keys) {
+        setValueOfKey(context, value, keys.getKey(this));
+    }
+
+    private <T> void setValueOfKey(Context context, @Nullable T value, String name) {
+        PreferenceCache cache = PreferenceCache.get(context, store);
+        SharedPreferences.Editor editor = cache.edit();
+
+        if (defaultValue instanceof Object[] && cache.contains(name + "-length")) {
+            //this replaces an array written before PREF_VERSION 2
+            Object length = cache.get(name + "-length");
+            for (int i = 0; length instanceof Integer && i < (Integer) length; i++) {
+                editor.remove(name + "-" + i);
+                cache.put(name + "-" + i, null);
             }
 
-            editor.putInt(name + "-length", array.length);
+            editor.remove(name + "-length");
+            cache.put(name + "-length", null);
+        }
+
+        if (value == null) {
+            editor.remove(name);
+            cache.put(name, null);
         } else {
-            if (value instanceof Boolean)
-                editor.putBoolean(name, (Boolean) value);
-            else if (value instanceof Integer)
-                editor.putInt(name, (Integer) value);
-            else if (value instanceof String)
-                editor.putString(name, (String) value);
+            Object item = value;
+            if (value instanceof Object[]) {
+                for (Object element : (Object[]) value) {
+                    if (element != null && !(element instanceof Boolean || element instanceof Integer || element instanceof String))
+                        throw new TypeMismatchException(this);
+                }
+
+                item = encodeArray((Object[]) value);
+            }
+
+            if (item instanceof Boolean)
+                editor.putBoolean(name, (Boolean) item);
+            else if (item instanceof Integer)
+                editor.putInt(name, (Integer) item);
+            else if (item instanceof String)
+                editor.putString(name, (String) item);
             else throw new TypeMismatchException(this);
+
+            cache.put(name, item);
         }
 
         editor.apply();
     }
 
+    /**
+     * Encode an array as a single string, so that it can be stored in one
+     * preference. Each item is written as its length, a ':', and then the
+     * item itself, so that no characters need to be escaped; a null item
+     * is written as an empty string.
+     *
+     * @param array the array to encode
+     * @return the encoded array
+     */
+    public static String encodeArray(Object[] array) {
+        StringBuilder builder = new StringBuilder();
+        for (Object item : array) {
+            String string = item != null ? String.valueOf(item) : "";
+            builder.append(string.length()).append(':').append(string);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Decode an array that was encoded by encodeArray(Object[]).
+     *
+     * @param value the encoded array
+     * @return the (string) items of the array
+     * @throws IllegalArgumentException if the value isn't an encoded array
+     */
+    public static String[] decodeArray(String value) {
+        List<String> items = new ArrayList<>();
+        int index = 0;
+        while (index < value.length()) {
+            int separator = value.indexOf(':', index);
+            if (separator < 0)
+                throw new IllegalArgumentException("Missing separator in encoded array");
+
+            int start = separator + 1;
+            int end = start + Integer.parseInt(value.substring(index, separator));
+            if (end < start || end > value.length())
+                throw new IllegalArgumentException("Invalid item length in encoded array");
+
+            items.add(value.substring(start, end));
+            index = end;
+        }
+
+        return items.toArray(new String[items.size()]);
+    }
+
     public static boolean toFile(Context context, File file) {
-        Map<String, ?> prefs = PreferenceManager.getDefaultSharedPreferences(context).getAll();
+        Map<String, Object> prefs = new HashMap<>();
+        for (Store store : Store.values())
+            prefs.putAll(store.getPreferences(context).getAll());
 
         FileOutputStream stream = null;
         try {
@@ -244,7 +464,9 @@ public enum PreferenceData {
     }
 
     public static boolean fromFile(Context context, File file) {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        //otherwise, anything left in the default store could overwrite the restored values later
+        splitStores(context);
+
         byte[] bytes = new byte[(int) file.length()];
 
         FileInputStream stream = null;
@@ -263,11 +485,18 @@ public enum PreferenceData {
         }
 
         String contents = new String(bytes);
-        SharedPreferences.Editor editor = prefs.edit();
+        SharedPreferences.Editor[] editors = new SharedPreferences.Editor[Store.values().length];
         try {
             Map<String, ?> map = new Gson().fromJson(contents, Map.class);
             for (String key : map.keySet()) {
                 Object value = map.get(key);
+                Store store = Store.of(key);
+                SharedPreferences.Editor editor = editors[store.ordinal()];
+                if (editor == null) {
+                    editor = store.getPreferences(context).edit();
+                    editors[store.ordinal()] = editor;
+                }
+
                 if (value instanceof Boolean)
                     editor.putBoolean(key, (Boolean) value);
                 else if (value instanceof Float)
@@ -287,13 +516,134 @@ public enum PreferenceData {
             return false;
         }
 
-        return editor.commit();
+        boolean isCommitted = true;
+        for (SharedPreferences.Editor editor : editors) {
+            if (editor != null)
+                isCommitted &= editor.commit();
+        }
+
+        return isCommitted;
+    }
+
+    /**
+     * Move any preferences that belong in a separate store out of the default
+     * SharedPreferences, where all of them were written before PREF_VERSION 3.
+     * This is run before any of the separate stores is first read, so that
+     * nothing can be read from (or removed from) a store before its values
+     * have been moved into it; anything that is already in a store is kept.
+     *
+     * @param context the current application context
+     * @return false if the preferences couldn't be written to their stores
+     */
+    public static boolean splitStores(Context context) {
+        synchronized (Store.class) {
+            SharedPreferences prefs = Store.GLOBAL.getPreferences(context);
+            Map<String, ?> items = prefs.getAll();
+
+            SharedPreferences[] storePrefs = new SharedPreferences[Store.values().length];
+            SharedPreferences.Editor[] editors = new SharedPreferences.Editor[Store.values().length];
+            List<String> movedKeys = new ArrayList<>();
+            for (String key : items.keySet()) {
+                Store store = Store.of(key);
+                if (store == Store.GLOBAL)
+                    continue;
+
+                SharedPreferences.Editor editor = editors[store.ordinal()];
+                if (editor == null) {
+                    storePrefs[store.ordinal()] = store.getPreferences(context);
+                    editor = storePrefs[store.ordinal()].edit();
+                    editors[store.ordinal()] = editor;
+                }
+
+                if (!storePrefs[store.ordinal()].contains(key)) {
+                    Object value = items.get(key);
+                    if (value instanceof Boolean)
+                        editor.putBoolean(key, (Boolean) value);
+                    else if (value instanceof Integer)
+                        editor.putInt(key, (Integer) value);
+                    else if (value instanceof String)
+                        editor.putString(key, (String) value);
+                    else if (value instanceof Float)
+                        editor.putFloat(key, (Float) value);
+                    else if (value instanceof Long)
+                        editor.putLong(key, (Long) value);
+                    else if (value instanceof Set)
+                        editor.putStringSet(key, (Set<String>) value);
+                    else continue;
+                }
+
+                movedKeys.add(key);
+            }
+
+            if (movedKeys.isEmpty())
+                return true;
+
+            for (SharedPreferences.Editor editor : editors) {
+                if (editor != null && !editor.commit())
+                    return false;
+            }
+
+            SharedPreferences.Editor editor = prefs.edit();
+            for (String key : movedKeys)
+                editor.remove(key);
+
+            return editor.commit();
+        }
     }
 
     public static String getBackupsDir() {
         return Environment.getExternalStorageDirectory() + "/status/backups";
     }
 
+    /**
+     * The SharedPreferences files that the preferences are split between, so
+     * that the per-app rules and caches (which grow with the number of apps)
+     * don't need to be parsed to read the global preferences, and so that
+     * writing a preference only rewrites the file that it is stored in.
+     */
+    public enum Store {
+        GLOBAL(null),
+        ICONS("icons"),
+        APPS("apps"),
+        CACHES("caches");
+
+        @Nullable
+        private String fileName;
+
+        Store(@Nullable String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * Get the SharedPreferences instance of the store.
+         *
+         * @param context the current application context
+         * @return the SharedPreferences that the store is written to
+         */
+        public SharedPreferences getPreferences(Context context) {
+            if (fileName != null)
+                return context.getSharedPreferences(context.getPackageName() + "_" + fileName, Context.MODE_PRIVATE);
+            else return PreferenceManager.getDefaultSharedPreferences(context);
+        }
+
+        /**
+         * Find the store that a key belongs in; this includes the keys
+         * of icon styles, which are prefixed with the icon's class name.
+         *
+         * @param key the key of a preference
+         * @return the store that the key should be written to
+         */
+        public static Store of(String key) {
+            for (PreferenceData data : PreferenceData.values()) {
+                if (data.store != GLOBAL && key.endsWith(data.name.substring(data.name.indexOf('/'))))
+                    return data.store;
+            }
+
+            String iconPackage = IconData.class.getName().substring(0, IconData.class.getName().lastIndexOf('.') + 1);
+            return key.startsWith(iconPackage) ? ICONS : GLOBAL;
+        }
+    }
+
     public static class TypeMismatchException extends RuntimeException {
 
         public TypeMismatchException(PreferenceData data) {
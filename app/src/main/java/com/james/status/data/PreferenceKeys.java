@@ -0,0 +1,124 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The keys of every PreferenceData for a single set of identifier args,
+ * such as the class name of an icon or the component name of an app. Each
+ * key is only formatted the first time that it is used, and the same
+ * instance is returned for the same args, so reading a preference through
+ * one doesn't need to format or allocate anything.
+ *
+ * Only the most recently used instances are kept, as a new set of args is
+ * used for every package that posts a notification; anything that uses the
+ * same keys for a long time (such as an icon) should keep its own reference.
+ */
+public final class PreferenceKeys {
+
+    static final int MAX_INSTANCES = 64;
+
+    private static final Map<String, PreferenceKeys> instances = new LinkedHashMap<String, PreferenceKeys>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreferenceKeys> eldest) {
+            return size() > MAX_INSTANCES;
+        }
+    };
+    private static final int SIZE = PreferenceData.values().length;
+
+    private final String[] args;
+    private final String[] keys;
+
+    private PreferenceKeys(String[] args) {
+        this.args = args;
+        keys = new String[SIZE];
+    }
+
+    /**
+     * Get the (shared) keys for a single identifier arg, without
+     * allocating anything if they have already been created.
+     *
+     * @param arg the identifier arg to format the keys with
+     * @return the keys for the given arg
+     */
+    public static PreferenceKeys get(String arg) {
+        synchronized (instances) {
+            PreferenceKeys keys = instances.get(arg);
+            return keys != null ? keys : get(new String[]{arg});
+        }
+    }
+
+    /**
+     * Get the (shared) keys for a set of identifier args.
+     *
+     * @param args the identifier args to format the keys with
+     * @return the keys for the given args
+     */
+    public static PreferenceKeys get(String... args) {
+        String id = args.length == 1 ? args[0] : join(args);
+        synchronized (instances) {
+            PreferenceKeys keys = instances.get(id);
+            if (keys == null) {
+                keys = new PreferenceKeys(args.clone());
+                instances.put(id, keys);
+            }
+
+            return keys;
+        }
+    }
+
+    private static String join(String[] args) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0)
+                builder.append('\n');
+
+            builder.append(args[i]);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get the identifier args that the keys are formatted with. The
+     * returned array is shared, so it must not be modified.
+     *
+     * @return the identifier args of the keys
+     */
+    public String[] getArgs() {
+        return args;
+    }
+
+    /**
+     * Get the key of a preference for these identifier args.
+     *
+     * @param data the preference to get the key of
+     * @return the formatted key of the preference
+     */
+    public String getKey(PreferenceData data) {
+        int index = data.ordinal();
+        String key = keys[index];
+        if (key == null) {
+            key = data.formatName(args).intern();
+            keys[index] = key;
+        }
+
+        return key;
+    }
+}
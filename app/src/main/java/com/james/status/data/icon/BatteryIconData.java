@@ -50,7 +50,7 @@ public class BatteryIconData extends IconData {
 
     @Override
     public void register() {
-        Intent intent = getContext().registerReceiver(receiver, getIntentFilter());
+        Intent intent = registerReceiver(receiver, getIntentFilter());
 
         if (intent != null) {
             int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
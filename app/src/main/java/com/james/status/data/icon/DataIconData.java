@@ -37,7 +37,6 @@ public class DataIconData extends IconData {
         super(context);
 
         telephonyManager = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-        dataListener = new DataListener(this);
     }
 
     @Override
@@ -67,9 +66,11 @@ public class DataIconData extends IconData {
 
     @Override
     public void register() {
-        if (dataListener != null)
-            telephonyManager.listen(dataListener, PhoneStateListener.LISTEN_DATA_CONNECTION_STATE);
+        if (dataListener == null)
+            dataListener = new DataListener(this);
+
         isRegistered = true;
+        telephonyManager.listen(dataListener, PhoneStateListener.LISTEN_DATA_CONNECTION_STATE);
 
         onDataChanged();
     }
@@ -115,6 +116,8 @@ public class DataIconData extends IconData {
     @Override
     public void unregister() {
         isRegistered = false;
+        if (dataListener != null)
+            telephonyManager.listen(dataListener, PhoneStateListener.LISTEN_NONE);
     }
 
     @Override
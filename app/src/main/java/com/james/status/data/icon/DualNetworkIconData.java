@@ -79,6 +79,8 @@ public class DualNetworkIconData extends NetworkIconData {
     @Override
     public void unregister() {
         isRegistered = false;
+        if (telephonyManager != null && networkListener != null)
+            telephonyManager.listen(networkListener, PhoneStateListener.LISTEN_NONE);
     }
 
     private class NetworkListener extends PhoneStateListener {
@@ -16,7 +16,9 @@
 
 package com.james.status.data.icon;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
@@ -27,13 +29,17 @@ import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.Typeface;
-import android.preference.PreferenceManager;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.util.SparseArray;
 
 import com.james.status.R;
 import com.james.status.Status;
 import com.james.status.data.IconStyleData;
 import com.james.status.data.PreferenceData;
+import com.james.status.data.PreferenceKeys;
 import com.james.status.data.preference.BasePreferenceData;
 import com.james.status.data.preference.BooleanPreferenceData;
 import com.james.status.data.preference.ColorPreferenceData;
@@ -42,7 +48,10 @@ import com.james.status.data.preference.IconPreferenceData;
 import com.james.status.data.preference.IntegerPreferenceData;
 import com.james.status.data.preference.ListPreferenceData;
 import com.james.status.receivers.IconUpdateReceiver;
+import com.james.status.utils.AnimationTable;
+import com.james.status.utils.FontUtils;
 import com.james.status.utils.StaticUtils;
+import com.james.status.utils.tasks.ScaleTask;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,14 +62,14 @@ import androidx.annotation.LayoutRes;
 import androidx.annotation.Nullable;
 import me.jfenn.androidutils.ColorUtils;
 import me.jfenn.androidutils.DimenUtils;
-import me.jfenn.androidutils.anim.AnimatedColor;
-import me.jfenn.androidutils.anim.AnimatedFloat;
-import me.jfenn.androidutils.anim.AnimatedInteger;
 
 public abstract class IconData<T extends IconUpdateReceiver> {
 
     public static final int LEFT_GRAVITY = -1, CENTER_GRAVITY = 0, RIGHT_GRAVITY = 1;
 
+    private static final int MAX_COLOR_FILTERS = 64;
+    private static final SparseArray<PorterDuffColorFilter> colorFilters = new SparseArray<>();
+
     private Context context;
     private ReDrawListener reDrawListener;
     private Typeface typeface;
@@ -71,52 +80,83 @@ public abstract class IconData<T extends IconUpdateReceiver> {
     private IconStyleData style;
     private int level;
 
-    private Bitmap bitmap;
+    private IconStyleData.Atlas atlas;
+    private int iconLevel = -1;
+    private int scalingSize = -1;
+    private boolean isHardwareBitmaps;
+    private Drawable drawnVector;
+    private int vectorColorFilterColor;
     private String text;
     Paint iconPaint, textPaint;
     private boolean isIcon, isText;
 
-    private AnimatedColor textColor;
-    private AnimatedFloat textSize;
-    private AnimatedInteger textAlpha;
+    Matrix matrix;
+    private Paint.FontMetrics textMetrics;
+    private Paint measurePaint;
+    private Rect textBounds;
+    private RectF iconBounds;
+    private int colorFilterColor;
+
+    @Nullable
+    private String measuredText;
+    private Typeface measuredTypeface;
+    private float measuredTextSize;
+    private int measuredTextWidth;
+
+    private PreferenceKeys keys;
+    private Config config;
+    private boolean isLayoutDirty;
+
+    AnimationTable animations;
+
+    private AnimationTable.ColorValue textColor;
+    private AnimationTable.FloatValue textSize;
+    private AnimationTable.IntValue textAlpha;
     private int defaultTextDarkColor;
-    private AnimatedInteger textOffsetX, textOffsetY;
+    private AnimationTable.IntValue textOffsetX, textOffsetY;
 
-    AnimatedColor iconColor;
-    AnimatedInteger iconSize;
-    AnimatedInteger iconAlpha;
+    AnimationTable.ColorValue iconColor;
+    AnimationTable.IntValue iconSize;
+    AnimationTable.IntValue iconAlpha;
     private int defaultIconDarkColor;
-    private AnimatedInteger iconOffsetX, iconOffsetY;
+    private AnimationTable.IntValue iconOffsetX, iconOffsetY;
 
-    AnimatedInteger padding;
-
-    boolean isAnimations;
+    AnimationTable.IntValue padding;
 
     public IconData(Context context) {
         this.context = context;
+        keys = PreferenceKeys.get(getClass().getName());
 
         iconPaint = new Paint();
         iconPaint.setAntiAlias(true);
         iconPaint.setDither(true);
+        iconPaint.setFilterBitmap(true);
 
         textPaint = new Paint();
         textPaint.setAntiAlias(true);
         textPaint.setDither(true);
 
+        matrix = new Matrix();
+        textMetrics = new Paint.FontMetrics();
+        measurePaint = new Paint();
+        textBounds = new Rect();
+        iconBounds = new RectF();
+
         styles = getIconStyles();
         level = 0;
 
-        textColor = new AnimatedColor(Color.WHITE);
-        textSize = new AnimatedFloat(0);
-        textAlpha = new AnimatedInteger(0);
-        textOffsetX = new AnimatedInteger(0);
-        textOffsetY = new AnimatedInteger(0);
-        iconColor = new AnimatedColor(Color.WHITE);
-        iconSize = new AnimatedInteger(0);
-        iconAlpha = new AnimatedInteger(0);
-        iconOffsetX = new AnimatedInteger(0);
-        iconOffsetY = new AnimatedInteger(0);
-        padding = new AnimatedInteger(0);
+        animations = new AnimationTable();
+        textColor = animations.addColor(Color.WHITE);
+        textSize = animations.addFloat(0);
+        textAlpha = animations.addInt(0);
+        textOffsetX = animations.addInt(0);
+        textOffsetY = animations.addInt(0);
+        iconColor = animations.addColor(Color.WHITE);
+        iconSize = animations.addInt(0);
+        iconAlpha = animations.addInt(0);
+        iconOffsetX = animations.addInt(0);
+        iconOffsetY = animations.addInt(0);
+        padding = animations.addInt(0);
 
         init(true);
     }
@@ -137,41 +177,32 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      *                    restarting Status's entire service).
      */
     protected void init(boolean isFirstInit) {
-        iconColor.setDefault((int) PreferenceData.ICON_ICON_COLOR_LIGHT.getSpecificOverriddenValue(getContext(),
-                PreferenceData.STATUS_ICON_COLOR.getValue(getContext()), getIdentifierArgs()));
-        defaultIconDarkColor = (int) PreferenceData.ICON_ICON_COLOR_DARK.getSpecificOverriddenValue(getContext(),
-                PreferenceData.STATUS_DARK_ICON_COLOR.getValue(getContext()), getIdentifierArgs());
-
-        textColor.setDefault((int) PreferenceData.ICON_TEXT_COLOR_LIGHT.getSpecificOverriddenValue(getContext(),
-                PreferenceData.STATUS_ICON_TEXT_COLOR.getValue(getContext()), getIdentifierArgs()));
-        defaultTextDarkColor = (int) PreferenceData.ICON_TEXT_COLOR_DARK.getSpecificOverriddenValue(getContext(),
-                PreferenceData.STATUS_DARK_ICON_TEXT_COLOR.getValue(getContext()), getIdentifierArgs());
-
-        iconSize.setDefault(DimenUtils.dpToPx((int) PreferenceData.ICON_ICON_SCALE.getSpecificValue(getContext(), getIdentifierArgs())));
-        iconOffsetX.to((int) PreferenceData.ICON_ICON_OFFSET_X.getSpecificValue(getContext(), getIdentifierArgs()));
-        iconOffsetY.to((int) PreferenceData.ICON_ICON_OFFSET_Y.getSpecificValue(getContext(), getIdentifierArgs()));
-        textSize.setDefault((float) DimenUtils.spToPx((float) (int) PreferenceData.ICON_TEXT_SIZE.getSpecificValue(getContext(), getIdentifierArgs())));
-        textOffsetX.to((int) PreferenceData.ICON_TEXT_OFFSET_X.getSpecificValue(getContext(), getIdentifierArgs()));
-        textOffsetY.to((int) PreferenceData.ICON_TEXT_OFFSET_Y.getSpecificValue(getContext(), getIdentifierArgs()));
-        padding.to(DimenUtils.dpToPx((int) PreferenceData.ICON_ICON_PADDING.getSpecificValue(getContext(), getIdentifierArgs())));
-
-        backgroundColor = PreferenceData.STATUS_COLOR.getValue(getContext());
-
-        Typeface typefaceFont = Typeface.DEFAULT;
-        String typefaceName = PreferenceData.ICON_TEXT_TYPEFACE.getSpecificOverriddenValue(getContext(), null, getIdentifierArgs());
-        if (typefaceName != null) {
-            try {
-                typefaceFont = Typeface.createFromAsset(getContext().getAssets(), typefaceName);
-            } catch (Exception ignored) {
-            }
-        }
+        reloadConfig();
+        isLayoutDirty = true;
+
+        iconColor.setDefault(config.iconColorLight);
+        defaultIconDarkColor = config.iconColorDark;
+
+        textColor.setDefault(config.textColorLight);
+        defaultTextDarkColor = config.textColorDark;
 
-        typeface = Typeface.create(typefaceFont, (int) PreferenceData.ICON_TEXT_EFFECT.getSpecificValue(getContext(), getIdentifierArgs()));
+        iconSize.setDefault(DimenUtils.dpToPx(config.iconScale));
+        iconOffsetX.to(config.iconOffsetX);
+        iconOffsetY.to(config.iconOffsetY);
+        textSize.setDefault((float) DimenUtils.spToPx((float) config.textSize));
+        textOffsetX.to(config.textOffsetX);
+        textOffsetY.to(config.textOffsetY);
+        padding.to(DimenUtils.dpToPx(config.iconPadding));
 
-        isAnimations = PreferenceData.STATUS_ICON_ANIMATIONS.getValue(getContext());
+        backgroundColor = PreferenceData.STATUS_COLOR.getColor(getContext());
+
+        typeface = FontUtils.getTypeface(getContext(), config.typefaceName, config.textEffect);
+        measuredText = null;
+
+        animations.setAnimated(PreferenceData.STATUS_ICON_ANIMATIONS.getBoolean(getContext()));
 
         if (styles.size() > 0) {
-            String name = PreferenceData.ICON_ICON_STYLE.getSpecificOverriddenValue(context, styles.get(0).name, getIdentifierArgs());
+            String name = config.styleName != null ? config.styleName : styles.get(0).name;
             if (name != null) {
                 for (IconStyleData style : styles) {
                     if (style.name.equals(name)) {
@@ -182,6 +213,10 @@ public abstract class IconData<T extends IconUpdateReceiver> {
             }
 
             if (style == null) style = styles.get(0);
+            if (style.isVector()) {
+                style.setAtlas(null);
+                atlas = null;
+            } else updateAtlas();
             onIconUpdate(level);
         }
 
@@ -208,34 +243,138 @@ public abstract class IconData<T extends IconUpdateReceiver> {
         return context;
     }
 
+    /**
+     * Re-read all of the icon's preferences into a new (immutable) Config
+     * instance. Anything that draws the icon should only read from this, so
+     * it must be called whenever a preference of the icon is modified.
+     */
+    public final void reloadConfig() {
+        config = new Config(this);
+    }
+
+    /**
+     * Get the resolved preferences of the icon, as they were when the icon
+     * was last initialized.
+     *
+     * @return The current Config of the icon.
+     */
+    public final Config getConfig() {
+        return config;
+    }
+
     public final void setReDrawListener(ReDrawListener listener) {
         reDrawListener = listener;
     }
 
+    /**
+     * Obtain an atlas of the current style at the current icon size. If
+     * the style already has an atlas at a different size, that is kept
+     * (and drawn scaled) while the new one is created in the background,
+     * so that changing the icon size doesn't block the frame.
+     */
+    private void updateAtlas() {
+        final IconStyleData style = this.style;
+        final int size = DimenUtils.dpToPx(config.iconScale);
+        IconStyleData.Atlas current = style.getAtlas();
+        if (current == null || current.size == size || atlas != current || size <= 0) {
+            atlas = style.getAtlas(context, size, isHardwareBitmaps);
+            return;
+        } else if (scalingSize == size) {
+            return;
+        }
+
+        scalingSize = size;
+        final boolean isHardware = isHardwareBitmaps;
+        new ScaleTask<>(new ScaleTask.Scalable<IconStyleData.Atlas>() {
+            @Override
+            public IconStyleData.Atlas scale() {
+                return style.createAtlas(context, size, isHardware);
+            }
+
+            @Override
+            public void onScaled(@Nullable IconStyleData.Atlas result) {
+                if (scalingSize == size)
+                    scalingSize = -1;
+
+                if (result == null || IconData.this.style != style || DimenUtils.dpToPx(config.iconScale) != size)
+                    return;
+
+                result = result.withHardware(isHardwareBitmaps);
+                style.setAtlas(result);
+                atlas = result;
+                invalidateLayout();
+                requestReDraw();
+            }
+        }).start();
+    }
+
+    /**
+     * Set whether the icon's images should be stored as hardware bitmaps,
+     * which is only possible if the icon is always drawn by a hardware
+     * accelerated canvas. Any existing images are converted immediately,
+     * so that a software canvas never has to draw a hardware bitmap.
+     *
+     * @param isHardwareBitmaps true if images should be hardware bitmaps
+     */
+    public void setHardwareBitmaps(boolean isHardwareBitmaps) {
+        if (this.isHardwareBitmaps == isHardwareBitmaps)
+            return;
+
+        this.isHardwareBitmaps = isHardwareBitmaps;
+        if (atlas != null) {
+            IconStyleData.Atlas converted = atlas.withHardware(isHardwareBitmaps);
+            if (style != null && style.getAtlas() == atlas)
+                style.setAtlas(converted);
+
+            atlas = converted;
+        }
+    }
+
+    protected final boolean isHardwareBitmaps() {
+        return isHardwareBitmaps;
+    }
+
     public final void onIconUpdate(int level) {
         this.level = level;
         if (hasIcon() && style != null) {
-            Bitmap bitmap = style.getBitmap(context, level);
-            isIcon = bitmap != null;
+            isIcon = isIconDrawable(level);
+            isLayoutDirty = true;
             if (isIcon) {
-                this.bitmap = bitmap;
+                iconLevel = level;
                 iconSize.toDefault();
             } else iconSize.to(0);
 
             if (reDrawListener != null)
-                reDrawListener.onRequestReDraw();
+                reDrawListener.onRequestReDraw(this);
         }
     }
 
+    /**
+     * Determine whether the current style has an icon that can be drawn
+     * for a particular level - either as a vector, or from the atlas.
+     *
+     * @param level the level of the icon
+     * @return true if the icon can be drawn
+     */
+    private boolean isIconDrawable(int level) {
+        if (style == null)
+            return false;
+        else if (style.isVector())
+            return style.getVector(context, level) != null;
+        else return atlas != null && atlas.hasIcon(level);
+    }
+
     public final void onTextUpdate(@Nullable String text) {
         isText = text != null;
+        measuredText = null;
+        isLayoutDirty = true;
         if (isText) {
             this.text = text;
             textSize.toDefault();
         } else textSize.to(0f);
 
         if (hasText() && reDrawListener != null)
-            reDrawListener.onRequestReDraw();
+            reDrawListener.onRequestReDraw(this);
     }
 
     /**
@@ -257,7 +396,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      */
     public final void requestReDraw() {
         if (reDrawListener != null)
-            reDrawListener.onRequestReDraw();
+            reDrawListener.onRequestReDraw(this);
     }
 
     /**
@@ -266,7 +405,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      * @return True if the icon should be drawn.
      */
     public final boolean isVisible() {
-        return PreferenceData.ICON_VISIBILITY.getSpecificOverriddenValue(getContext(), isDefaultVisible(), getIdentifierArgs()) && StaticUtils.isPermissionsGranted(getContext(), getPermissions());
+        return config.isVisible;
     }
 
     /**
@@ -298,7 +437,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      * @return True if the element should have an icon.
      */
     public boolean hasIcon() {
-        return canHazIcon() && PreferenceData.ICON_ICON_VISIBILITY.getSpecificOverriddenValue(getContext(), true, getIdentifierArgs()) && style != null;
+        return canHazIcon() && config.isIconVisible && style != null;
     }
 
     /**
@@ -320,7 +459,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      * @return True if the element should have text.
      */
     public boolean hasText() {
-        return canHazText() && PreferenceData.ICON_TEXT_VISIBILITY.getSpecificOverriddenValue(getContext(), !canHazIcon(), getIdentifierArgs());
+        return canHazText() && config.isTextVisible;
     }
 
     /**
@@ -356,10 +495,36 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      */
     public void register() {
         if (receiver == null) receiver = getReceiver();
-        if (receiver != null) getContext().registerReceiver(receiver, getIntentFilter());
+        if (receiver != null) registerReceiver(receiver, getIntentFilter());
         onIconUpdate(-1);
     }
 
+    /**
+     * Register a receiver to be run on the thread that the icon is being
+     * registered from - which is the thread that the status bar is drawn
+     * on - rather than always being run on the main thread.
+     *
+     * @param receiver the receiver to register
+     * @param filter   the intents to receive
+     * @return the first sticky intent that matches the filter, if there is one
+     */
+    @Nullable
+    Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        return getContext().registerReceiver(receiver, filter, null, new Handler());
+    }
+
+    /**
+     * Determine whether the icon can be unregistered while the status bar
+     * can't be seen (such as when the screen is off), and registered again
+     * once it can. Icons that can't recover their state on register() - such
+     * as the notifications, which are only ever sent once - should return false.
+     *
+     * @return True if the icon doesn't need updates while it isn't visible.
+     */
+    public boolean canPause() {
+        return true;
+    }
+
     /**
      * Unregister the icon so that it no longer receives any updates. `requestRedraw()` should no longer
      * be called after this.
@@ -369,19 +534,19 @@ public abstract class IconData<T extends IconUpdateReceiver> {
     }
 
     public final int getIconPadding() {
-        return PreferenceData.ICON_ICON_PADDING.getSpecificValue(getContext(), getIdentifierArgs());
+        return config.iconPadding;
     }
 
     public final int getIconScale() {
-        return PreferenceData.ICON_ICON_SCALE.getSpecificValue(getContext(), getIdentifierArgs());
+        return config.iconScale;
     }
 
     public final float getTextSize() {
-        return (float) (int) PreferenceData.ICON_TEXT_SIZE.getSpecificValue(getContext(), getIdentifierArgs());
+        return (float) config.textSize;
     }
 
     public final int getPosition() {
-        return PreferenceData.ICON_POSITION.getSpecificValue(getContext(), getIdentifierArgs());
+        return config.position;
     }
 
     public int getDefaultGravity() {
@@ -389,7 +554,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
     }
 
     public final int getGravity() {
-        return PreferenceData.ICON_GRAVITY.getSpecificOverriddenValue(getContext(), getDefaultGravity(), getIdentifierArgs());
+        return config.gravity;
     }
 
     /**
@@ -404,7 +569,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
             iconColor.to(color);
             textColor.to(color);
         } else {*/
-        boolean isIconContrast = (Boolean) PreferenceData.STATUS_DARK_ICONS.getValue(getContext()) && !ColorUtils.isColorDark(color);
+        boolean isIconContrast = config.isDarkIcons && !ColorUtils.isColorDark(color);
         iconColor.to(isIconContrast ? defaultIconDarkColor : iconColor.getDefault());
         textColor.to(isIconContrast ? defaultTextDarkColor : textColor.getDefault());
         //}
@@ -438,11 +603,11 @@ public abstract class IconData<T extends IconUpdateReceiver> {
         requestReDraw();
     }
 
-    public AnimatedColor getIconColor() {
+    public AnimationTable.ColorValue getIconColor() {
         return iconColor;
     }
 
-    public AnimatedInteger getIconAlpha() {
+    public AnimationTable.IntValue getIconAlpha() {
         return iconAlpha;
     }
 
@@ -452,7 +617,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
 
     @Nullable
     public Bitmap getBitmap() {
-        if (hasIcon()) return bitmap;
+        if (hasIcon() && style != null && iconLevel >= 0) return style.getBitmap(context, iconLevel);
         else return null;
     }
 
@@ -492,22 +657,70 @@ public abstract class IconData<T extends IconUpdateReceiver> {
     }
 
     /**
-     * Update the animated attributes of the icon to match the current system
-     * time.
+     * Determine whether the width of the icon might have changed since
+     * it was last laid out, meaning that getWidth() needs to be called
+     * again to position it.
+     *
+     * @return True if the icon needs to be laid out again.
      */
-    public void updateAnimatedValues() {
-        iconColor.next(isAnimations);
-        iconSize.next(isAnimations);
-        iconOffsetX.next(isAnimations);
-        iconOffsetY.next(isAnimations);
-        textColor.next(isAnimations);
-        textSize.next(isAnimations);
-        textOffsetX.next(isAnimations);
-        textOffsetY.next(isAnimations);
-        padding.next(isAnimations);
-        textAlpha.next(isAnimations);
-        iconAlpha.next(isAnimations);
+    public boolean needsLayout() {
+        return isLayoutDirty ||
+                !iconSize.isTarget() ||
+                !textSize.isTarget() ||
+                !padding.isTarget();
+    }
 
+    /**
+     * Mark the icon as needing to be laid out again; this should be
+     * called whenever something that affects its width is changed.
+     */
+    final void invalidateLayout() {
+        isLayoutDirty = true;
+    }
+
+    /**
+     * Called once the icon has been laid out with its current width.
+     */
+    public final void onLayout() {
+        isLayoutDirty = false;
+    }
+
+    /**
+     * Move all of the animated attributes of the icon into another table,
+     * which will be responsible for updating them from then on. This allows
+     * the StatusView to update the attributes of every icon at once.
+     *
+     * @param table the table to store the animated attributes in
+     */
+    public void setAnimationTable(AnimationTable table) {
+        table.addAll(animations);
+        animations = table;
+    }
+
+    /**
+     * Release all of the animated attributes of the icon from its table, so
+     * that they stop being updated and their slots can be reused. The icon
+     * can't be drawn again after this has been called.
+     */
+    public void releaseAnimations() {
+        textColor.release();
+        textSize.release();
+        textAlpha.release();
+        textOffsetX.release();
+        textOffsetY.release();
+        iconColor.release();
+        iconSize.release();
+        iconAlpha.release();
+        iconOffsetX.release();
+        iconOffsetY.release();
+        padding.release();
+    }
+
+    /**
+     * Update the paints of the icon to match the current
+     * values of its animated attributes.
+     */
+    void updatePaints() {
         int drawnIconColor = iconColor.val();
         float drawnIconAlpha = ((float) iconAlpha.val() / 255) * ((float) Color.alpha(drawnIconColor) / 255);
         int iconColor = Color.rgb(
@@ -516,13 +729,37 @@ public abstract class IconData<T extends IconUpdateReceiver> {
                 StaticUtils.getMergedValue(Color.blue(drawnIconColor), Color.blue(backgroundColor), drawnIconAlpha)
         );
         iconPaint.setColor(iconColor);
-        iconPaint.setColorFilter(new PorterDuffColorFilter(iconColor, PorterDuff.Mode.SRC_IN));
+        if (iconPaint.getColorFilter() == null || colorFilterColor != iconColor) {
+            iconPaint.setColorFilter(getColorFilter(iconColor));
+            colorFilterColor = iconColor;
+        }
         textPaint.setColor(textColor.val());
         textPaint.setAlpha((int) (((float) textAlpha.val() / 255) * ((float) Color.alpha(textColor.val()) / 255) * 255));
         textPaint.setTextSize(textSize.val());
         textPaint.setTypeface(typeface);
     }
 
+    /**
+     * Get a (cached) color filter that tints an icon to the given color.
+     * These are shared between all of the icons, as most of them are
+     * drawn in the same handful of colors.
+     *
+     * @param color the color to tint the icon
+     * @return a color filter that draws the icon in the given color
+     */
+    static PorterDuffColorFilter getColorFilter(@ColorInt int color) {
+        PorterDuffColorFilter filter = colorFilters.get(color);
+        if (filter == null) {
+            if (colorFilters.size() >= MAX_COLOR_FILTERS)
+                colorFilters.clear();
+
+            filter = new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN);
+            colorFilters.put(color, filter);
+        }
+
+        return filter;
+    }
+
     /**
      * Draws the icon on a canvas.
      *
@@ -531,40 +768,57 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      * @param width  the available width for the icon to be drawn within
      */
     public void draw(Canvas canvas, int x, int width) {
-        updateAnimatedValues();
+        updatePaints();
 
         x += padding.val();
 
-        if (hasIcon() && bitmap != null && iconSize.val() > 0) {
+        if (hasIcon() && isIconDrawable(iconLevel) && iconSize.val() > 0) {
             x += iconOffsetX.val();
 
-            if (iconSize.isTarget() && iconSize.val() != bitmap.getHeight()) {
-                if (bitmap.getHeight() > iconSize.val())
-                    bitmap = Bitmap.createScaledBitmap(bitmap, iconSize.val(), iconSize.val(), true);
-                else {
-                    Bitmap bitmap = style.getBitmap(context, level);
-                    if (bitmap != null) {
-                        this.bitmap = bitmap;
-                        if (this.bitmap.getHeight() != iconSize.val())
-                            this.bitmap = Bitmap.createScaledBitmap(bitmap, iconSize.val(), iconSize.val(), true);
-                    }
+            float top = (((float) canvas.getHeight() - iconSize.val()) / 2) - iconOffsetY.val();
+            if (style.isVector()) {
+                Drawable vector = style.getVector(context, iconLevel);
+                int intrinsicWidth = vector.getIntrinsicWidth(), intrinsicHeight = vector.getIntrinsicHeight();
+                int vectorWidth = intrinsicWidth > 0 && intrinsicHeight > 0 ? Math.round((float) iconSize.val() * intrinsicWidth / intrinsicHeight) : iconSize.val();
+                vector.setBounds(x, Math.round(top), x + vectorWidth, Math.round(top) + iconSize.val());
+                if (vector != drawnVector || colorFilterColor != vectorColorFilterColor) {
+                    vector.setColorFilter(iconPaint.getColorFilter());
+                    drawnVector = vector;
+                    vectorColorFilterColor = colorFilterColor;
                 }
-            }
 
-            Matrix matrix = new Matrix();
-            matrix.postScale((float) iconSize.val() / bitmap.getHeight(), (float) iconSize.val() / bitmap.getHeight());
-            matrix.postTranslate(x, (((float) canvas.getHeight() - iconSize.val()) / 2) - iconOffsetY.val());
-            canvas.drawBitmap(bitmap, matrix, iconPaint);
+                vector.draw(canvas);
+            } else {
+                Rect source = atlas.getSource(iconLevel);
+                float scale = (float) iconSize.val() / atlas.size;
+                iconBounds.set(x, top, x + (source.width() * scale), top + iconSize.val());
+                canvas.drawBitmap(atlas.bitmap, source, iconBounds, iconPaint);
+            }
 
             x += iconSize.val() + padding.val() - iconOffsetX.val();
         }
 
         if (hasText() && text != null) {
-            Paint.FontMetrics metrics = textPaint.getFontMetrics();
-            canvas.drawText(text, x + textOffsetX.val(), ((canvas.getHeight() - metrics.descent - metrics.ascent) / 2) - textOffsetY.val(), textPaint);
+            textPaint.getFontMetrics(textMetrics);
+            canvas.drawText(text, x + textOffsetX.val(), ((canvas.getHeight() - textMetrics.descent - textMetrics.ascent) / 2) - textOffsetY.val(), textPaint);
         }
     }
 
+    /**
+     * Returns the amount of space (px) that the icon might draw outside
+     * of the horizontal bounds given by getWidth(), as a result of its
+     * icon / text offsets or of glyphs that overhang their advance.
+     *
+     * @return the horizontal overflow (px) of the icon
+     */
+    public int getDrawOverflow() {
+        int overflow = Math.abs(config.iconOffsetX) + Math.abs(config.textOffsetX);
+        if (hasText())
+            overflow += (int) (textPaint.getTextSize() / 4);
+
+        return overflow;
+    }
+
     /**
      * Returns the estimated width (px) of the icon, or -1
      * if the icon needs to know the available space
@@ -575,32 +829,50 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      * @return the estimated width (px) of the icon
      */
     public int getWidth(int height, int available) {
-        if ((!hasIcon() || iconSize.nextVal() == 0) && (!hasText() || textSize.nextVal() == 0))
+        if ((!hasIcon() || iconSize.val() == 0) && (!hasText() || textSize.val() == 0))
             return 0;
 
         int width = 0;
-        if ((hasIcon() && bitmap != null) || (hasText() && text != null))
-            width += padding.nextVal();
+        boolean isIconDrawn = hasIcon() && isIconDrawable(iconLevel);
+        if (isIconDrawn || (hasText() && text != null))
+            width += padding.val();
 
-        if (hasIcon() && bitmap != null) {
-            width += iconSize.nextVal();
-            width += padding.nextVal();
+        if (isIconDrawn) {
+            width += iconSize.val();
+            width += padding.val();
         }
 
         if (hasText() && text != null) {
-            Paint textPaint = new Paint();
-            textPaint.setTextSize(textSize.nextVal());
-            textPaint.setTypeface(typeface);
-
-            Rect bounds = new Rect();
-            textPaint.getTextBounds(text, 0, text.length(), bounds);
-            width += hasText() ? bounds.width() : 0;
-            width += padding.nextVal();
+            width += getTextWidth(textSize.val());
+            width += padding.val();
         }
 
         return width;
     }
 
+    /**
+     * Measures the width (px) of the icon's text at a particular size. The
+     * result is cached until the text, typeface, or size is changed, as
+     * most text on the status bar only changes every minute or so.
+     *
+     * @param size the text size (px) to measure the text at
+     * @return the width (px) of the text
+     */
+    private int getTextWidth(float size) {
+        if (measuredText == null || !measuredText.equals(text) || measuredTypeface != typeface || measuredTextSize != size) {
+            measurePaint.setTextSize(size);
+            measurePaint.setTypeface(typeface);
+            measurePaint.getTextBounds(text, 0, text.length(), textBounds);
+
+            measuredText = text;
+            measuredTypeface = typeface;
+            measuredTextSize = size;
+            measuredTextWidth = textBounds.width();
+        }
+
+        return measuredTextWidth;
+    }
+
     /**
      * Obtain a list of all of the "preferences" that can be used to modify the icon
      * in the user-facing settings UI.
@@ -620,6 +892,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
                             getIdentifierArgs()
                     ),
                     preference -> {
+                        reloadConfig();
                         StaticUtils.updateStatusService(getContext(), true);
                         ((Status) getContext().getApplicationContext()).onIconPreferenceChanged(IconData.this);
                     }
@@ -635,6 +908,7 @@ public abstract class IconData<T extends IconUpdateReceiver> {
                             getIdentifierArgs()
                     ),
                     preference -> {
+                        reloadConfig();
                         StaticUtils.updateStatusService(getContext(), true);
                         ((Status) getContext().getApplicationContext()).onIconPreferenceChanged(IconData.this);
                     }
@@ -891,10 +1165,10 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      *                          the icon.
      */
     public List<IconStyleData> getIconStyles() {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences prefs = PreferenceData.Store.ICONS.getPreferences(context);
 
         List<IconStyleData> styles = new ArrayList<>();
-        String[] names = PreferenceData.ICON_ICON_STYLE_NAMES.getSpecificValue(getContext(), getIdentifierArgs());
+        String[] names = PreferenceData.ICON_ICON_STYLE_NAMES.getSpecificValue(getContext(), keys);
         for (String name : names) {
             IconStyleData style = IconStyleData.fromSharedPreferences(prefs, getClass().getName(), name);
             if (style != null) styles.add(style);
@@ -912,14 +1186,14 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      */
     public final void addIconStyle(IconStyleData style) {
         if (style.getSize() == getIconStyleSize()) {
-            List<String> list = new ArrayList<>(Arrays.asList((String[]) PreferenceData.ICON_ICON_STYLE_NAMES.getSpecificValue(getContext(), getIdentifierArgs())));
+            List<String> list = new ArrayList<>(Arrays.asList((String[]) PreferenceData.ICON_ICON_STYLE_NAMES.getSpecificValue(getContext(), keys)));
 
-            SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
+            SharedPreferences.Editor editor = PreferenceData.Store.ICONS.getPreferences(context).edit();
             style.writeToSharedPreferences(editor, getClass().getName());
             editor.apply();
 
             list.add(style.name);
-            PreferenceData.ICON_ICON_STYLE_NAMES.setValue(context, list.toArray(new String[list.size()]), getIdentifierArgs());
+            PreferenceData.ICON_ICON_STYLE_NAMES.setValue(context, list.toArray(new String[list.size()]), keys);
         }
     }
 
@@ -929,10 +1203,10 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      * @param style             The style to be removed.
      */
     public final void removeIconStyle(IconStyleData style) {
-        List<String> list = new ArrayList<>(Arrays.asList((String[]) PreferenceData.ICON_ICON_STYLE_NAMES.getSpecificValue(getContext(), getIdentifierArgs())));
+        List<String> list = new ArrayList<>(Arrays.asList((String[]) PreferenceData.ICON_ICON_STYLE_NAMES.getSpecificValue(getContext(), keys)));
 
         list.remove(style.name);
-        PreferenceData.ICON_ICON_STYLE_NAMES.setValue(context, list.toArray(new String[list.size()]), getIdentifierArgs());
+        PreferenceData.ICON_ICON_STYLE_NAMES.setValue(context, list.toArray(new String[list.size()]), keys);
     }
 
     /**
@@ -943,10 +1217,79 @@ public abstract class IconData<T extends IconUpdateReceiver> {
      *                          to identify the icon in SharedPreferences.
      */
     public String[] getIdentifierArgs() {
-        return new String[]{getClass().getName()};
+        return keys.getArgs();
+    }
+
+    /**
+     * Get the (interned) keys of the icon's preferences, which can be
+     * used in place of getIdentifierArgs() to avoid formatting a key
+     * each time that a preference is read.
+     *
+     * @return The keys of the icon's preferences.
+     */
+    public final PreferenceKeys getKeys() {
+        return keys;
     }
 
     public interface ReDrawListener {
-        void onRequestReDraw();
+        void onRequestReDraw(IconData icon);
+    }
+
+    /**
+     * An immutable snapshot of the preferences of an icon, so that
+     * they don't need to be looked up each time a frame is drawn.
+     */
+    public static final class Config {
+
+        public final boolean isVisible;
+        public final boolean isIconVisible, isTextVisible;
+        public final int gravity, position;
+
+        public final int iconColorLight, iconColorDark;
+        public final int textColorLight, textColorDark;
+        public final int iconScale, iconPadding;
+        public final int iconOffsetX, iconOffsetY;
+        public final int textSize, textEffect;
+        public final int textOffsetX, textOffsetY;
+        public final boolean isDarkIcons;
+
+        @Nullable
+        public final String typefaceName;
+        @Nullable
+        public final String styleName;
+
+        private Config(IconData icon) {
+            Context context = icon.getContext();
+            PreferenceKeys keys = icon.getKeys();
+
+            isVisible = PreferenceData.ICON_VISIBILITY.getBoolean(context, icon.isDefaultVisible(), keys)
+                    && StaticUtils.isPermissionsGranted(context, icon.getPermissions());
+            isIconVisible = PreferenceData.ICON_ICON_VISIBILITY.getBoolean(context, true, keys);
+            isTextVisible = PreferenceData.ICON_TEXT_VISIBILITY.getBoolean(context, !icon.canHazIcon(), keys);
+            gravity = PreferenceData.ICON_GRAVITY.getInt(context, icon.getDefaultGravity(), keys);
+            position = PreferenceData.ICON_POSITION.getInt(context, keys);
+
+            iconColorLight = PreferenceData.ICON_ICON_COLOR_LIGHT.getColor(context,
+                    PreferenceData.STATUS_ICON_COLOR.getColor(context), keys);
+            iconColorDark = PreferenceData.ICON_ICON_COLOR_DARK.getColor(context,
+                    PreferenceData.STATUS_DARK_ICON_COLOR.getColor(context), keys);
+            textColorLight = PreferenceData.ICON_TEXT_COLOR_LIGHT.getColor(context,
+                    PreferenceData.STATUS_ICON_TEXT_COLOR.getColor(context), keys);
+            textColorDark = PreferenceData.ICON_TEXT_COLOR_DARK.getColor(context,
+                    PreferenceData.STATUS_DARK_ICON_TEXT_COLOR.getColor(context), keys);
+
+            iconScale = PreferenceData.ICON_ICON_SCALE.getInt(context, keys);
+            iconPadding = PreferenceData.ICON_ICON_PADDING.getInt(context, keys);
+            iconOffsetX = PreferenceData.ICON_ICON_OFFSET_X.getInt(context, keys);
+            iconOffsetY = PreferenceData.ICON_ICON_OFFSET_Y.getInt(context, keys);
+            textSize = PreferenceData.ICON_TEXT_SIZE.getInt(context, keys);
+            textEffect = PreferenceData.ICON_TEXT_EFFECT.getInt(context, keys);
+            textOffsetX = PreferenceData.ICON_TEXT_OFFSET_X.getInt(context, keys);
+            textOffsetY = PreferenceData.ICON_TEXT_OFFSET_Y.getInt(context, keys);
+            isDarkIcons = PreferenceData.STATUS_DARK_ICONS.getBoolean(context);
+
+            typefaceName = PreferenceData.ICON_TEXT_TYPEFACE.getString(context, null, keys);
+            styleName = PreferenceData.ICON_ICON_STYLE.getString(context, null, keys);
+        }
     }
 }
@@ -18,6 +18,7 @@ package com.james.status.data.icon;
 
 import android.Manifest;
 import android.content.Context;
+import android.os.Build;
 import android.telephony.PhoneStateListener;
 import android.telephony.SignalStrength;
 import android.telephony.TelephonyManager;
@@ -45,16 +46,29 @@ public class NetworkIconData extends IconData {
 
     @Override
     public void register() {
-        if (networkListener == null) {
+        if (networkListener == null)
             networkListener = new NetworkListener(this);
-            telephonyManager.listen(networkListener, PhoneStateListener.LISTEN_SIGNAL_STRENGTHS);
-        }
+
         isRegistered = true;
+        telephonyManager.listen(networkListener, PhoneStateListener.LISTEN_SIGNAL_STRENGTHS);
+
+        //listen() also reports the current signal strength, but not until later
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            SignalStrength signalStrength = telephonyManager.getSignalStrength();
+            if (signalStrength != null)
+                onSignalStrengthsChanged(signalStrength);
+        }
     }
 
     @Override
     public void unregister() {
         isRegistered = false;
+        if (networkListener != null)
+            telephonyManager.listen(networkListener, PhoneStateListener.LISTEN_NONE);
+    }
+
+    private void onSignalStrengthsChanged(SignalStrength signalStrength) {
+        onIconUpdate((int) Math.round(SignalStrengths.getFirstValid(signalStrength)));
     }
 
     @Override
@@ -175,7 +189,7 @@ public class NetworkIconData extends IconData {
             if (reference != null) icon = reference.get();
 
             if (icon != null && icon.isRegistered)
-                icon.onIconUpdate((int) Math.round(SignalStrengths.getFirstValid(signalStrength)));
+                icon.onSignalStrengthsChanged(signalStrength);
         }
     }
 }
@@ -19,7 +19,6 @@ package com.james.status.data.icon;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Matrix;
 
 import com.james.status.R;
 import com.james.status.data.NotificationData;
@@ -28,20 +27,23 @@ import com.james.status.data.preference.AppNotificationsPreferenceData;
 import com.james.status.data.preference.BasePreferenceData;
 import com.james.status.data.preference.BooleanPreferenceData;
 import com.james.status.data.preference.IntegerPreferenceData;
+import com.james.status.utils.AnimationTable;
 
 import java.util.List;
 
 import androidx.collection.ArrayMap;
 import androidx.core.app.NotificationCompat;
-import me.jfenn.androidutils.anim.AnimatedFloat;
 
 public class NotificationsIconData extends IconData {
 
     private ArrayMap<String, NotificationData> notifications;
+    private ArrayMap<String, AnimationTable.FloatValue> scales;
+    private Runnable reDrawRunnable = this::requestReDraw;
 
     public NotificationsIconData(Context context) {
         super(context);
         notifications = new ArrayMap<>();
+        scales = new ArrayMap<>();
     }
 
     @Override
@@ -117,30 +119,32 @@ public class NotificationsIconData extends IconData {
     public void register() {
         super.register();
         notifications.clear();
+        for (int i = 0; i < scales.size(); i++)
+            scales.valueAt(i).release();
+
+        scales.clear();
+        invalidateLayout();
         requestReDraw();
     }
 
     @Override
-    public boolean needsDraw() {
-        boolean needsDraw = false;
-        for (int i = 0; notifications != null && i < notifications.size() && !needsDraw; i++) {
-            NotificationData notification = notifications.valueAt(i);
-            if (notification == null)
-                continue;
-
-            AnimatedFloat scale = notification.getScale();
-            if (scale == null)
-                continue;
+    public boolean canPause() {
+        return false;
+    }
 
-            needsDraw = !scale.isTarget();
+    @Override
+    public boolean needsDraw() {
+        for (int i = 0; scales != null && i < scales.size(); i++) {
+            if (!scales.valueAt(i).isTarget())
+                return true;
         }
 
-        return needsDraw || super.needsDraw();
+        return super.needsDraw();
     }
 
     @Override
     public void draw(Canvas canvas, int x, int width) {
-        updateAnimatedValues();
+        updatePaints();
         int itemsWidth = notifications.size() * (iconSize.val() + padding.val());
         int items = itemsWidth <= width ? notifications.size() : (width / (iconSize.val() + padding.val())) - 1;
 
@@ -151,18 +155,19 @@ public class NotificationsIconData extends IconData {
             if (notification == null)
                 continue;
 
-            notification.getScale().next(isAnimations);
+            AnimationTable.FloatValue scale = scales.get(notifications.keyAt(i));
+            float scaleVal = scale != null ? scale.val() : 1f;
 
             Bitmap bitmap = notifications.valueAt(i).getIcon(getContext());
             if (bitmap != null) {
-                float scaledIconSize = iconSize.val() * notification.getScale().val();
-                iconPaint.setAlpha((int) (notification.getScale().val() * 255));
+                float scaledIconSize = iconSize.val() * scaleVal;
+                iconPaint.setAlpha((int) (scaleVal * 255));
 
-                if (iconSize.isTarget() && iconSize.val() != bitmap.getHeight() && notification.getScale().isTarget() && notification.getScale().val() == 1f)
-                    bitmap = notification.getIcon(iconSize.val());
+                if (iconSize.isTarget() && (scale == null || scale.isTarget()) && scaleVal == 1f)
+                    bitmap = notification.getIcon(iconSize.val(), isHardwareBitmaps(), reDrawRunnable);
 
                 if (bitmap != null) {
-                    Matrix matrix = new Matrix();
+                    matrix.reset();
                     matrix.postScale(scaledIconSize / bitmap.getHeight(), scaledIconSize / bitmap.getHeight());
                     matrix.postTranslate(x + ((scaledIconSize - bitmap.getWidth()) / 2), ((float) canvas.getHeight() - scaledIconSize) / 2);
                     canvas.drawBitmap(bitmap, matrix, iconPaint);
@@ -191,9 +196,9 @@ public class NotificationsIconData extends IconData {
     }
 
     private void addNotification(String key, NotificationData notification) {
-        if (notification.priority < (int) PreferenceData.APP_NOTIFICATIONS_MIN_PRIORITY.getValue(getContext()))
+        if (notification.priority < PreferenceData.APP_NOTIFICATIONS_MIN_PRIORITY.getInt(getContext()))
             return;
-        if (notification.isOngoing() && (boolean) PreferenceData.APP_NOTIFICATIONS_IGNORE_ONGOING.getValue(getContext()))
+        if (notification.isOngoing() && PreferenceData.APP_NOTIFICATIONS_IGNORE_ONGOING.getBoolean(getContext()))
             return;
 
         for (int i = 0; i < notifications.size(); i++) {
@@ -208,12 +213,33 @@ public class NotificationsIconData extends IconData {
 
         if (notification.getIcon(getContext()) != null) {
             notifications.put(key, notification);
+            if (!scales.containsKey(key)) {
+                AnimationTable.FloatValue scale = animations.addFloat(0f);
+                scale.to(1f);
+                scales.put(key, scale);
+            }
+
+            invalidateLayout();
             requestReDraw();
         }
     }
 
+    @Override
+    public void releaseAnimations() {
+        super.releaseAnimations();
+        for (int i = 0; i < scales.size(); i++)
+            scales.valueAt(i).release();
+
+        scales.clear();
+    }
+
     private void removeNotification(String key) {
         notifications.remove(key);
+        AnimationTable.FloatValue scale = scales.remove(key);
+        if (scale != null)
+            scale.release();
+
+        invalidateLayout();
         requestReDraw();
     }
 
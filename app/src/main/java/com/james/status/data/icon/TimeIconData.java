@@ -43,7 +43,7 @@ public class TimeIconData extends IconData<TimeIconData.TimeReceiver> {
     @Override
     public void init(boolean isFirstInit) {
         calendar = Calendar.getInstance();
-        format = PreferenceData.ICON_TEXT_FORMAT.getSpecificOverriddenValue(getContext(), DateFormat.is24HourFormat(getContext()) ? "HH:mm" : "h:mm a", getIdentifierArgs());
+        format = PreferenceData.ICON_TEXT_FORMAT.getString(getContext(), DateFormat.is24HourFormat(getContext()) ? "HH:mm" : "h:mm a", getKeys());
 
         if (!isFirstInit && calendar != null) {
             calendar.setTimeInMillis(System.currentTimeMillis());
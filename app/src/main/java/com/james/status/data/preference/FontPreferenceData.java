@@ -25,6 +25,7 @@ import android.widget.RadioGroup;
 import android.widget.ScrollView;
 
 import com.james.status.R;
+import com.james.status.utils.FontUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -74,11 +75,11 @@ public class FontPreferenceData extends BasePreferenceData<String> {
             button.setId(i + 1);
             button.setText(item.replace(".ttf", ""));
             button.setTag(item);
-            try {
-                button.setTypeface(Typeface.createFromAsset(getContext().getAssets(), item));
-            } catch (Exception e) {
+            Typeface typeface = FontUtils.getFont(getContext(), item);
+            if (typeface == null)
                 continue;
-            }
+
+            button.setTypeface(typeface);
             button.setChecked(preference != null && preference.equals(item));
             group.addView(button);
         }
@@ -21,7 +21,6 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,6 +28,7 @@ import android.view.ViewGroup;
 import com.james.status.R;
 import com.james.status.adapters.AppAdapter;
 import com.james.status.data.AppPreferenceData;
+import com.james.status.data.PreferenceData;
 import com.james.status.dialogs.AppChooserDialog;
 
 import java.util.ArrayList;
@@ -70,7 +70,7 @@ public class AppPreferenceFragment extends SimpleFragment {
             PackageManager manager = context.getPackageManager();
             if (manager != null) {
                 Map<String, AppPreferenceData> apps = new HashMap<>();
-                Map<String, ?> prefs = PreferenceManager.getDefaultSharedPreferences(getContext()).getAll();
+                Map<String, ?> prefs = PreferenceData.Store.APPS.getPreferences(getContext()).getAll();
                 for (String key : prefs.keySet()) {
                     for (String pref : new String[]{"/APP_COLOR", "/APP_ICON_COLOR", "/APP_TEXT_COLOR", "/APP_FULLSCREEN", "/APP_FULLSCREEN_IGNORE"}) {
                         if (key.endsWith(pref)) {
@@ -102,7 +102,7 @@ public class AppPreferenceFragment extends SimpleFragment {
                 .setTitle(R.string.reset_all)
                 .setMessage(R.string.reset_apps_confirm)
                 .setPositiveButton(R.string.action_ok, (dialogInterface, i) -> {
-                    SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(getContext());
+                    SharedPreferences preferences = PreferenceData.Store.APPS.getPreferences(getContext());
                     Map<String, ?> prefs = preferences.getAll();
                     SharedPreferences.Editor editor = preferences.edit();
                     for (String key : prefs.keySet()) {
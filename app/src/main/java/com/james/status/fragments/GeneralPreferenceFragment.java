@@ -36,6 +36,7 @@ import com.james.status.data.preference.ColorPreferenceData;
 import com.james.status.data.preference.IntegerPreferenceData;
 import com.james.status.dialogs.BackupDialog;
 import com.james.status.services.AccessibilityService;
+import com.james.status.utils.RenderQualityPolicy;
 import com.james.status.utils.StaticUtils;
 
 import java.util.ArrayList;
@@ -209,6 +210,49 @@ public class GeneralPreferenceFragment extends SimpleFragment {
                         ),
                         recreateListener
                 ),
+                new IntegerPreferenceData(
+                        getContext(),
+                        new BasePreferenceData.Identifier<Integer>(
+                                PreferenceData.STATUS_FRAME_RATE,
+                                getString(R.string.preference_frame_rate),
+                                getString(R.string.preference_frame_rate_desc),
+                                BasePreferenceData.Identifier.SectionIdentifier.ANIMATIONS
+                        ),
+                        getString(R.string.unit_fps),
+                        1,
+                        120,
+                        updateListener
+                ),
+                new BooleanPreferenceData(
+                        getContext(),
+                        new BasePreferenceData.Identifier<Boolean>(
+                                PreferenceData.STATUS_FRAME_CACHE,
+                                getString(R.string.preference_frame_cache),
+                                getString(R.string.preference_frame_cache_desc),
+                                BasePreferenceData.Identifier.SectionIdentifier.ANIMATIONS
+                        ),
+                        updateListener
+                ),
+                new BooleanPreferenceData(
+                        getContext(),
+                        new BasePreferenceData.Identifier<Boolean>(
+                                PreferenceData.STATUS_RENDER_THREAD,
+                                getString(R.string.preference_render_thread),
+                                getString(R.string.preference_render_thread_desc),
+                                BasePreferenceData.Identifier.SectionIdentifier.ANIMATIONS
+                        ),
+                        recreateListener
+                ),
+                new BooleanPreferenceData(
+                        getContext(),
+                        new BasePreferenceData.Identifier<Boolean>(
+                                PreferenceData.STATUS_ADAPTIVE_QUALITY,
+                                getString(R.string.preference_adaptive_quality),
+                                getString(R.string.preference_adaptive_quality_desc, RenderQualityPolicy.getReason(getContext()).getDescription(getContext())),
+                                BasePreferenceData.Identifier.SectionIdentifier.ANIMATIONS
+                        ),
+                        updateListener
+                ),
                 /*new BooleanPreferenceData( //TODO: #137
                         getContext(),
                         new BasePreferenceData.Identifier<Boolean>(
@@ -81,8 +81,10 @@ public class IconPreferenceFragment extends SimpleFragment implements Status.OnI
             public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
                 super.clearView(recyclerView, viewHolder);
                 List<IconData> icons = adapter.getIcons();
-                for (int i = 0; i < icons.size(); i++)
+                for (int i = 0; i < icons.size(); i++) {
                     PreferenceData.ICON_POSITION.setValue(getContext(), i, icons.get(i).getIdentifierArgs());
+                    icons.get(i).reloadConfig();
+                }
 
                 StaticUtils.updateStatusService(getActivity(), true);
             }
@@ -38,6 +38,7 @@ import com.james.status.data.AppData;
 import com.james.status.data.AppPreferenceData;
 import com.james.status.data.NotificationData;
 import com.james.status.data.PreferenceData;
+import com.james.status.data.PreferenceKeys;
 import com.james.status.utils.ColorUtils;
 import com.james.status.utils.StaticUtils;
 
@@ -76,8 +77,8 @@ public class AccessibilityService extends android.accessibilityservice.Accessibi
                     case ACTION_GET_COLOR:
                         Intent i = new Intent(StatusServiceImpl.ACTION_UPDATE);
                         i.setClass(this, StatusServiceImpl.getCompatClass(this));
-                        i.putExtra(StatusServiceImpl.EXTRA_COLOR, PreferenceData.STATUS_COLOR_AUTO.getValue(this) ? color
-                                : (Integer) PreferenceData.STATUS_COLOR.getValue(this));
+                        i.putExtra(StatusServiceImpl.EXTRA_COLOR, PreferenceData.STATUS_COLOR_AUTO.getBoolean(this) ? color
+                                : PreferenceData.STATUS_COLOR.getColor(this));
                         startService(i);
                         break;
                 }
@@ -109,10 +110,10 @@ public class AccessibilityService extends android.accessibilityservice.Accessibi
 
     @Override
     public void onAccessibilityEvent(final AccessibilityEvent event) {
-        if (PreferenceData.STATUS_ENABLED.getValue(this)) {
+        if (PreferenceData.STATUS_ENABLED.getBoolean(this)) {
             switch (event.getEventType()) {
                 case AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED:
-                    if (StaticUtils.shouldUseCompatNotifications(this) && event.getPackageName() != null && !event.getPackageName().toString().matches("com.james.status") && (boolean) PreferenceData.APP_NOTIFICATIONS.getSpecificValue(this, event.getPackageName().toString())) {
+                    if (StaticUtils.shouldUseCompatNotifications(this) && event.getPackageName() != null && !event.getPackageName().toString().matches("com.james.status") && PreferenceData.APP_NOTIFICATIONS.getBoolean(this, PreferenceKeys.get(event.getPackageName().toString()))) {
                         Parcelable parcelable = event.getParcelableData();
                         if (parcelable instanceof Notification) {
                             NotificationData notification = new NotificationData((Notification) parcelable, event.getPackageName().toString());
@@ -172,7 +173,7 @@ public class AccessibilityService extends android.accessibilityservice.Accessibi
                         }
 
                         Integer color = preference.getColor(this);
-                        if (color != null && (!isHome || !(boolean) PreferenceData.STATUS_HOME_TRANSPARENT.getValue(this))) {
+                        if (color != null && (!isHome || !PreferenceData.STATUS_HOME_TRANSPARENT.getBoolean(this))) {
                             setStatusBar(color, null, preference.isFullScreen(this), false, packageName.toString(), activityData);
                             return;
                         } else if (isHome) {
@@ -180,14 +181,14 @@ public class AccessibilityService extends android.accessibilityservice.Accessibi
                             return;
                         }
 
-                        if (!(boolean) PreferenceData.STATUS_COLOR_AUTO.getValue(this)) {
-                            setStatusBar((int) PreferenceData.STATUS_COLOR.getValue(this), null, preference.isFullScreen(this), false, packageName.toString(), activityData);
+                        if (!PreferenceData.STATUS_COLOR_AUTO.getBoolean(this)) {
+                            setStatusBar(PreferenceData.STATUS_COLOR.getColor(this), null, preference.isFullScreen(this), false, packageName.toString(), activityData);
                             return;
                         }
 
                         if (packageName.toString().equals("com.android.systemui")) {
                             //prevents the creation of some pretty nasty looking color schemes below Lollipop
-                            setStatusBar((int) PreferenceData.STATUS_COLOR.getValue(this), null, false, false, packageName.toString(), activityData);
+                            setStatusBar(PreferenceData.STATUS_COLOR.getColor(this), null, false, false, packageName.toString(), activityData);
                             return;
                         }
 
@@ -204,7 +205,7 @@ public class AccessibilityService extends android.accessibilityservice.Accessibi
                                 preference.setColorCache(this, activityData.version, color);
                         }
 
-                        setStatusBar(color != null ? color : (int) PreferenceData.STATUS_COLOR.getValue(this), null, preference.isFullScreen(this), false, packageName.toString(), activityData);
+                        setStatusBar(color != null ? color : PreferenceData.STATUS_COLOR.getColor(this), null, preference.isFullScreen(this), false, packageName.toString(), activityData);
                     }
             }
         }
@@ -273,7 +274,7 @@ public class AccessibilityService extends android.accessibilityservice.Accessibi
 
         private void onVolumeChanged() {
             AccessibilityService service = reference.get();
-            if (service != null && (boolean) PreferenceData.STATUS_HIDE_ON_VOLUME.getValue(service)) {
+            if (service != null && PreferenceData.STATUS_HIDE_ON_VOLUME.getBoolean(service)) {
                 Status.showDebug(service, "Volume callback added", Toast.LENGTH_SHORT);
                 service.setStatusBar(null, false, null, true, null, null);
                 handler.removeCallbacks(runnable);
@@ -25,6 +25,7 @@ import android.service.notification.StatusBarNotification;
 
 import com.james.status.data.NotificationData;
 import com.james.status.data.PreferenceData;
+import com.james.status.data.PreferenceKeys;
 import com.james.status.utils.StaticUtils;
 
 import java.util.ArrayList;
@@ -81,13 +82,13 @@ public class StatusService extends NotificationListenerService {
 
     @Override
     public void onNotificationPosted(StatusBarNotification sbn) {
-        if ((boolean) PreferenceData.STATUS_ENABLED.getValue(this) && (boolean) PreferenceData.APP_NOTIFICATIONS.getSpecificValue(this, sbn.getPackageName()) && !StaticUtils.shouldUseCompatNotifications(this) && !sbn.getPackageName().matches("com.james.status"))
+        if (PreferenceData.STATUS_ENABLED.getBoolean(this) && PreferenceData.APP_NOTIFICATIONS.getBoolean(this, PreferenceKeys.get(sbn.getPackageName())) && !StaticUtils.shouldUseCompatNotifications(this) && !sbn.getPackageName().matches("com.james.status"))
             impl.onNotificationAdded(getKey(sbn), new NotificationData(sbn, getKey(sbn)));
     }
 
     @Override
     public void onNotificationRemoved(StatusBarNotification sbn) {
-        if ((boolean) PreferenceData.STATUS_ENABLED.getValue(this) && !StaticUtils.shouldUseCompatNotifications(this))
+        if (PreferenceData.STATUS_ENABLED.getBoolean(this) && !StaticUtils.shouldUseCompatNotifications(this))
             impl.onNotificationRemoved(getKey(sbn));
     }
 
@@ -108,7 +109,7 @@ public class StatusService extends NotificationListenerService {
         if (packageManager == null)
             return;
 
-        if ((boolean) PreferenceData.STATUS_ENABLED.getValue(this) && !StaticUtils.shouldUseCompatNotifications(this)) {
+        if (PreferenceData.STATUS_ENABLED.getBoolean(this) && !StaticUtils.shouldUseCompatNotifications(this)) {
             List<StatusBarNotification> notifications = getNotifications();
             Collections.reverse(notifications);
 
@@ -116,7 +117,7 @@ public class StatusService extends NotificationListenerService {
                 if (sbn == null || sbn.getPackageName().matches("com.james.status"))
                     continue;
 
-                if (!((boolean) PreferenceData.APP_NOTIFICATIONS.getSpecificValue(this, sbn.getPackageName())))
+                if (!PreferenceData.APP_NOTIFICATIONS.getBoolean(this, PreferenceKeys.get(sbn.getPackageName())))
                     continue;
 
                 NotificationData notification = new NotificationData(sbn, getKey(sbn));
@@ -19,18 +19,20 @@ package com.james.status.services;
 import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.graphics.Color;
 import android.graphics.PixelFormat;
-import android.graphics.Point;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemClock;
 import android.view.Gravity;
 import android.view.View;
-import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 
 import com.james.status.BuildConfig;
@@ -59,14 +61,18 @@ import com.james.status.data.icon.TimeIconData;
 import com.james.status.data.icon.WifiIconData;
 import com.james.status.receivers.ActivityFullScreenSettingReceiver;
 import com.james.status.utils.StaticUtils;
+import com.james.status.views.StatusSurfaceView;
 import com.james.status.views.StatusView;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.TaskStackBuilder;
 import androidx.core.content.ContextCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
 
 public class StatusServiceImpl {
 
@@ -84,8 +90,15 @@ public class StatusServiceImpl {
 
     private static final int ID_FOREGROUND = 682;
 
+    @Nullable
     private StatusView statusView;
-    private View fullscreenView;
+    @Nullable
+    private StatusSurfaceView surfaceView;
+    private boolean isUiFullscreen, isWindowFullscreen;
+    private boolean isOpaque;
+    private Handler handler;
+    private boolean isFullscreenIgnore;
+    private BroadcastReceiver screenReceiver;
 
     private WindowManager windowManager;
 
@@ -97,17 +110,18 @@ public class StatusServiceImpl {
 
     public StatusServiceImpl(Service service) {
         this.service = service;
+        handler = new Handler(Looper.getMainLooper());
     }
 
     public void onCreate() {
         windowManager = (WindowManager) service.getSystemService(Context.WINDOW_SERVICE);
 
-        if (PreferenceData.STATUS_ENABLED.getValue(service))
+        if (PreferenceData.STATUS_ENABLED.getBoolean(service))
             setUp(false);
     }
 
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (!(boolean) PreferenceData.STATUS_ENABLED.getValue(service)) {
+        if (!PreferenceData.STATUS_ENABLED.getBoolean(service)) {
             onDestroy();
             disable(service);
             return Service.START_NOT_STICKY;
@@ -118,7 +132,7 @@ public class StatusServiceImpl {
         if (action == null) return Service.START_STICKY;
         switch (action) {
             case ACTION_CREATE:
-                if (statusView == null)
+                if (getWindowView() == null)
                     setUp(false);
                 break;
             case ACTION_START:
@@ -129,14 +143,12 @@ public class StatusServiceImpl {
                 disable(service);
                 break;
             case ACTION_UPDATE:
-                if (statusView != null) {
-                    if (intent.hasExtra(EXTRA_IS_TRANSPARENT) && intent.getBooleanExtra(EXTRA_IS_TRANSPARENT, false))
-                        statusView.setTransparent();
-                    else if (intent.hasExtra(EXTRA_COLOR))
-                        statusView.setColor(intent.getIntExtra(EXTRA_COLOR, Color.BLACK));
-
-                    statusView.setSystemShowing(intent.getBooleanExtra(EXTRA_IS_SYSTEM_FULLSCREEN, statusView.isSystemShowing()));
-                    statusView.setFullscreen(intent.getBooleanExtra(EXTRA_IS_FULLSCREEN, isFullscreen()));
+                if (getWindowView() != null) {
+                    final boolean isTransparent = intent.hasExtra(EXTRA_IS_TRANSPARENT) && intent.getBooleanExtra(EXTRA_IS_TRANSPARENT, false);
+                    final boolean hasColor = intent.hasExtra(EXTRA_COLOR);
+                    final int color = intent.getIntExtra(EXTRA_COLOR, Color.BLACK);
+                    final boolean hasSystemShowing = intent.hasExtra(EXTRA_IS_SYSTEM_FULLSCREEN);
+                    final boolean isSystemShowing = intent.getBooleanExtra(EXTRA_IS_SYSTEM_FULLSCREEN, false);
 
                     if (intent.hasExtra(EXTRA_PACKAGE) && intent.hasExtra(EXTRA_ACTIVITY)) {
                         AppPreferenceData preference = null;
@@ -144,13 +156,19 @@ public class StatusServiceImpl {
                         packageName = intent.getStringExtra(EXTRA_PACKAGE);
                         activityData = intent.getParcelableExtra(EXTRA_ACTIVITY);
 
+                        isFullscreenIgnore = false;
                         if (activityData != null) {
                             preference = new AppPreferenceData(activityData.packageName + "/" + activityData.name);
-                            statusView.setIconColor(preference.getIconColor(service));
-                            statusView.setTextColor(preference.getTextColor(service));
+                            isFullscreenIgnore = preference.isFullScreenIgnore(service);
+                            final Integer iconColor = preference.getIconColor(service);
+                            final Integer textColor = preference.getTextColor(service);
+                            runOnStatusView(statusView -> {
+                                statusView.setIconColor(iconColor);
+                                statusView.setTextColor(textColor);
+                            });
                         }
 
-                        if (PreferenceData.STATUS_PERSISTENT_NOTIFICATION.getValue(service)) {
+                        if (PreferenceData.STATUS_PERSISTENT_NOTIFICATION.getBoolean(service)) {
                             packageName = intent.getStringExtra(EXTRA_PACKAGE);
                             activityData = intent.getParcelableExtra(EXTRA_ACTIVITY);
                             activityPreference = preference;
@@ -158,11 +176,24 @@ public class StatusServiceImpl {
                             startForeground(packageName, activityData);
                         } else service.stopForeground(true);
                     }
+
+                    //read after isFullscreenIgnore has been updated for the current activity
+                    final boolean isFullscreen = intent.getBooleanExtra(EXTRA_IS_FULLSCREEN, isFullscreen());
+
+                    runOnStatusView(statusView -> {
+                        if (isTransparent)
+                            statusView.setTransparent();
+                        else if (hasColor)
+                            statusView.setColor(color);
+
+                        statusView.setSystemShowing(hasSystemShowing ? isSystemShowing : statusView.isSystemShowing());
+                        statusView.setFullscreen(isFullscreen);
+                    });
                 }
                 return Service.START_STICKY;
         }
 
-        if (PreferenceData.STATUS_PERSISTENT_NOTIFICATION.getValue(service)) {
+        if (PreferenceData.STATUS_PERSISTENT_NOTIFICATION.getBoolean(service)) {
             if (packageName != null && activityData != null)
                 startForeground(packageName, activityData);
             else {
@@ -202,7 +233,7 @@ public class StatusServiceImpl {
                 .setSubText(packageName)
                 .setContentIntent(contentStackBuilder.getPendingIntent(0, PendingIntent.FLAG_CANCEL_CURRENT));
 
-        if (PreferenceData.STATUS_COLOR_AUTO.getValue(service)) {
+        if (PreferenceData.STATUS_COLOR_AUTO.getBoolean(service)) {
             Intent colorIntent = new Intent(service, AppSettingActivity.class);
             colorIntent.putExtra(AppSettingActivity.EXTRA_COMPONENT, activityData.packageName + "/" + activityData.name);
             colorIntent.setFlags(Intent.FLAG_ACTIVITY_MULTIPLE_TASK);
@@ -264,14 +295,18 @@ public class StatusServiceImpl {
      * @param shouldKeepOld whether to reuse the old IconData instances
      */
     public void setUp(boolean shouldKeepOld) {
-        if (statusView == null || statusView.getParent() == null) {
-            if (statusView != null) {
-                windowManager.removeView(statusView);
-                statusView.unregister();
-            }
+        boolean isRenderThread = PreferenceData.STATUS_RENDER_THREAD.getBoolean(service);
+        if (getWindowView() == null || getWindowView().getParent() == null || isRenderThread != (surfaceView != null)) {
+            if (getWindowView() != null)
+                removeStatusView();
+
+            if (isRenderThread)
+                surfaceView = new StatusSurfaceView(service);
+            else statusView = new StatusView(service);
 
-            statusView = new StatusView(service);
+            shouldKeepOld = false;
 
+            isOpaque = false;
             WindowManager.LayoutParams params = new WindowManager.LayoutParams(
                     WindowManager.LayoutParams.MATCH_PARENT, StaticUtils.getStatusBarHeight(service),
                     getOverlayType(),
@@ -279,47 +314,51 @@ public class StatusServiceImpl {
                     PixelFormat.TRANSLUCENT);
 
             params.gravity = Gravity.TOP;
+            if (!isRenderThread)
+                params.flags |= WindowManager.LayoutParams.FLAG_HARDWARE_ACCELERATED;
 
-            windowManager.addView(statusView, params);
-        } else if (!shouldKeepOld)
-            statusView.unregister();
-
-        statusView.init();
+            final View windowView = getWindowView();
+            windowView.setOnSystemUiVisibilityChangeListener(this::onSystemUiVisibilityChange);
+            ViewCompat.setOnApplyWindowInsetsListener(windowView, this::onApplyWindowInsets);
+            windowManager.addView(windowView, params);
 
-        if (!shouldKeepOld) {
-            if (fullscreenView == null || fullscreenView.getParent() == null) {
-                WindowManager.LayoutParams params = new WindowManager.LayoutParams(1, WindowManager.LayoutParams.MATCH_PARENT,
-                        getOverlayType(),
-                        WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE,
-                        PixelFormat.TRANSPARENT);
+            runOnStatusView(statusView -> statusView.setOnOpacityChangedListener(isOpaque -> handler.post(() -> setWindowOpaque(windowView, isOpaque))));
+        }
 
-                params.gravity = Gravity.START | Gravity.TOP;
-                fullscreenView = new View(service);
+        final boolean isScreenOn = StaticUtils.isScreenOn(service);
+        final List<IconData> icons = shouldKeepOld ? null : getIcons(service);
 
-                windowManager.addView(fullscreenView, params);
+        runOnStatusView(statusView -> {
+            if (icons != null)
+                statusView.unregister();
 
-                fullscreenView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                    @Override
-                    public void onGlobalLayout() {
-                        if (statusView != null && fullscreenView != null) {
-                            if (activityPreference != null && activityPreference.isFullScreenIgnore(service))
-                                return;
+            statusView.setScreenOn(isScreenOn);
+            statusView.init();
 
-                            Point size = new Point();
-                            windowManager.getDefaultDisplay().getSize(size);
-                            statusView.setFullscreen(fullscreenView.getMeasuredHeight() == size.y);
-                        }
-                    }
-                });
+            if (icons != null) {
+                statusView.setIcons(icons);
+                statusView.register();
             }
+        });
+
+        if (screenReceiver == null) {
+            screenReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    final boolean isScreenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+                    runOnStatusView(statusView -> statusView.setScreenOn(isScreenOn));
+                }
+            };
 
-            statusView.setIcons(getIcons(service));
-            statusView.register();
-
-            if (service instanceof StatusService)
-                ((StatusService) service).sendNotifications();
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_SCREEN_ON);
+            filter.addAction(Intent.ACTION_SCREEN_OFF);
+            service.registerReceiver(screenReceiver, filter);
         }
 
+        if (!shouldKeepOld && service instanceof StatusService)
+            ((StatusService) service).sendNotifications();
+
         if (StaticUtils.isAccessibilityServiceRunning(service)) {
             Intent intent = new Intent(AccessibilityService.ACTION_GET_COLOR);
             intent.setClass(service, AccessibilityService.class);
@@ -328,22 +367,122 @@ public class StatusServiceImpl {
     }
 
     public boolean isFullscreen() {
-        if (statusView != null && fullscreenView != null) {
-            Point size = new Point();
-            windowManager.getDefaultDisplay().getSize(size);
-            return fullscreenView.getMeasuredHeight() == size.y;
-        } else return false;
+        return getWindowView() != null && !isFullscreenIgnore && (isUiFullscreen || isWindowFullscreen);
+    }
+
+    /**
+     * Switch the window that the status bar is drawn in between an opaque
+     * and a translucent format, so that the compositor only has to blend it
+     * with the app behind it while the status bar is actually transparent.
+     *
+     * @param windowView the window's view, which the status bar is drawn in
+     * @param isOpaque   true if the status bar is fully opaque
+     */
+    private void setWindowOpaque(View windowView, boolean isOpaque) {
+        if (windowView != getWindowView() || isOpaque == this.isOpaque || windowView.getParent() == null)
+            return;
+
+        this.isOpaque = isOpaque;
+        if (surfaceView != null)
+            surfaceView.setOpaque(isOpaque);
+        else {
+            WindowManager.LayoutParams params = (WindowManager.LayoutParams) windowView.getLayoutParams();
+            params.format = isOpaque ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT;
+            windowManager.updateViewLayout(windowView, params);
+        }
+    }
+
+    /**
+     * Called with the global system UI visibility whenever it changes, which
+     * is sent to every window (even while the status bar is hidden), so it
+     * can be used to tell when an app has hidden the system's status bar.
+     *
+     * @param visibility the system UI visibility flags
+     */
+    private void onSystemUiVisibilityChange(int visibility) {
+        boolean isUiFullscreen = (visibility & View.SYSTEM_UI_FLAG_FULLSCREEN) != 0;
+        if (isUiFullscreen != this.isUiFullscreen) {
+            this.isUiFullscreen = isUiFullscreen;
+            onFullscreenChanged();
+        }
+    }
+
+    /**
+     * Called with the insets of the status bar's window whenever they change
+     * (on API 20+). Apps that go fullscreen using FLAG_FULLSCREEN or a fullscreen
+     * theme don't change the system UI visibility, but the system's status bar
+     * is still hidden, so it stops insetting the top of the window. The window
+     * is only made invisible (never GONE) while it is hidden, so that it still
+     * receives these when the app leaves fullscreen.
+     *
+     * @param view   the view that the insets are applied to
+     * @param insets the insets of the window
+     * @return the insets, which aren't consumed
+     */
+    private WindowInsetsCompat onApplyWindowInsets(View view, WindowInsetsCompat insets) {
+        boolean isWindowFullscreen = insets.getSystemWindowInsetTop() == 0;
+        if (isWindowFullscreen != this.isWindowFullscreen) {
+            this.isWindowFullscreen = isWindowFullscreen;
+            onFullscreenChanged();
+        }
+
+        return insets;
+    }
+
+    private void onFullscreenChanged() {
+        final boolean isFullscreen = isFullscreen();
+        if (!isFullscreenIgnore)
+            runOnStatusView(statusView -> statusView.setFullscreen(isFullscreen));
     }
 
     public void onDestroy() {
-        if (fullscreenView != null) {
-            windowManager.removeView(fullscreenView);
-            fullscreenView = null;
+        if (screenReceiver != null) {
+            service.unregisterReceiver(screenReceiver);
+            screenReceiver = null;
         }
 
-        if (statusView != null) {
-            if (statusView.isRegistered()) statusView.unregister();
-            windowManager.removeView(statusView);
+        if (getWindowView() != null)
+            removeStatusView();
+    }
+
+    /**
+     * Get the view that is added to the window, which is either the
+     * StatusView itself or the surface that it is being drawn on.
+     *
+     * @return the view that is added to the window, or null if there isn't one
+     */
+    private View getWindowView() {
+        return surfaceView != null ? surfaceView : statusView;
+    }
+
+    /**
+     * Run something that interacts with the StatusView on the thread that
+     * it is drawn from; this is the current thread unless the StatusView
+     * is being drawn on a separate render thread. Nothing is run if the
+     * status bar hasn't been set up.
+     *
+     * @param runnable the runnable to run
+     */
+    private void runOnStatusView(StatusSurfaceView.StatusViewRunnable runnable) {
+        if (surfaceView != null)
+            surfaceView.runOnStatusView(runnable);
+        else if (statusView != null)
+            runnable.run(statusView);
+    }
+
+    /**
+     * Unregisters the StatusView and removes it from the window.
+     */
+    private void removeStatusView() {
+        View view = getWindowView();
+        if (view.getParent() != null)
+            windowManager.removeView(view);
+
+        if (surfaceView != null) {
+            surfaceView.release();
+            surfaceView = null;
+        } else {
+            statusView.unregister();
             statusView = null;
         }
     }
@@ -384,20 +523,18 @@ public class StatusServiceImpl {
     }
 
     public void onNotificationAdded(String key, NotificationData notification) {
-        if (statusView != null)
-            statusView.sendMessage(NotificationsIconData.class, key, notification);
+        runOnStatusView(statusView -> statusView.sendMessage(NotificationsIconData.class, key, notification));
     }
 
     public void onNotificationRemoved(String key) {
-        if (statusView != null)
-            statusView.sendMessage(NotificationsIconData.class, key);
+        runOnStatusView(statusView -> statusView.sendMessage(NotificationsIconData.class, key));
     }
 
     public static Class getCompatClass(Context context) {
         if (context instanceof StatusService || context instanceof StatusServiceCompat)
             return context.getClass(); //prevents issues disabling services during compatibility switch
 
-        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2 && !((Boolean) PreferenceData.STATUS_NOTIFICATIONS_COMPAT.getValue(context))
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2 && !PreferenceData.STATUS_NOTIFICATIONS_COMPAT.getBoolean(context)
                 ? StatusService.class : StatusServiceCompat.class;
     }
 
@@ -0,0 +1,451 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.utils;
+
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.ColorInt;
+
+/**
+ * Stores the state of a large amount of animated values in a few
+ * primitive arrays, so that they can all be updated at once. Only the
+ * values that haven't reached their target yet are touched by next(),
+ * and the amount of them is kept track of, so that finding out whether
+ * anything is animating doesn't require checking every single value.
+ *
+ * Values are obtained through addInt(), addFloat() and addColor(), which
+ * return handles that can be used in place of the AnimatedInteger,
+ * AnimatedFloat and AnimatedColor classes.
+ *
+ * Animations are based on the time that they were started at rather than
+ * the amount of frames that have been drawn, so they take the same amount
+ * of time to finish regardless of the frame rate (or any dropped frames).
+ */
+public class AnimationTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long DURATION = 200000000L;
+    private static final long NOT_STARTED = -1;
+
+    private float[] values, targets, defaults, starts;
+    private long[] startTimes;
+    private boolean[] isInteger, isActive;
+    private int size;
+
+    private int[] active;
+    private int activeCount;
+
+    private int[] released;
+    private int releasedCount;
+
+    private List<Value> handles;
+    private boolean isAnimated = true;
+
+    public AnimationTable() {
+        values = new float[INITIAL_CAPACITY];
+        targets = new float[INITIAL_CAPACITY];
+        defaults = new float[INITIAL_CAPACITY];
+        starts = new float[INITIAL_CAPACITY];
+        startTimes = new long[INITIAL_CAPACITY];
+        isInteger = new boolean[INITIAL_CAPACITY];
+        isActive = new boolean[INITIAL_CAPACITY];
+        active = new int[INITIAL_CAPACITY];
+        released = new int[INITIAL_CAPACITY];
+        handles = new ArrayList<>();
+    }
+
+    /**
+     * Set whether values should be animated towards their targets, or
+     * simply jump to them on the next frame.
+     *
+     * @param isAnimated true if values should be animated
+     */
+    public void setAnimated(boolean isAnimated) {
+        this.isAnimated = isAnimated;
+    }
+
+    /**
+     * Move every value that is still animating to the position it should
+     * be at for a particular frame. This should be called once per frame,
+     * before anything reads the values.
+     *
+     * @param frameTimeNanos the time (in the System.nanoTime() base) that the frame is drawn for
+     */
+    public void next(long frameTimeNanos) {
+        for (int i = activeCount - 1; i >= 0; i--) {
+            int index = active[i];
+            if (startTimes[index] == NOT_STARTED)
+                startTimes[index] = frameTimeNanos;
+
+            values[index] = getValueAt(index, frameTimeNanos);
+            if (values[index] == targets[index]) {
+                isActive[index] = false;
+                active[i] = active[--activeCount];
+            }
+        }
+    }
+
+    /**
+     * Determine whether all of the values in the table are at their targets.
+     *
+     * @return true if nothing is animating
+     */
+    public boolean isIdle() {
+        return activeCount == 0;
+    }
+
+    /**
+     * Get the amount of values that are currently animating.
+     *
+     * @return the amount of values that haven't reached their target
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public IntValue addInt(int value) {
+        IntValue handle = new IntValue();
+        register(handle, value, true);
+        return handle;
+    }
+
+    public FloatValue addFloat(float value) {
+        FloatValue handle = new FloatValue();
+        register(handle, value, false);
+        return handle;
+    }
+
+    public ColorValue addColor(@ColorInt int color) {
+        return new ColorValue(
+                addInt(Color.alpha(color)),
+                addInt(Color.red(color)),
+                addInt(Color.green(color)),
+                addInt(Color.blue(color))
+        );
+    }
+
+    /**
+     * Move all of the values in another table into this one; any handles
+     * to them will continue to work, but will be updated by this table
+     * from then on.
+     *
+     * @param table the table to take the values from
+     */
+    public void addAll(AnimationTable table) {
+        if (table == this)
+            return;
+
+        for (int i = 0; i < table.handles.size(); i++) {
+            Value handle = table.handles.get(i);
+            int index = handle.index;
+            float current = table.values[index], target = table.targets[index], defaultValue = table.defaults[index];
+
+            register(handle, current, table.isInteger[index]);
+            targets[handle.index] = target;
+            defaults[handle.index] = defaultValue;
+            starts[handle.index] = table.starts[index];
+            startTimes[handle.index] = table.startTimes[index];
+            updateActive(handle.index);
+        }
+
+        table.handles.clear();
+        table.size = 0;
+        table.activeCount = 0;
+        table.releasedCount = 0;
+    }
+
+    private void register(Value handle, float value, boolean isInteger) {
+        int index;
+        if (releasedCount > 0)
+            index = released[--releasedCount];
+        else {
+            if (size == values.length)
+                grow();
+
+            index = size++;
+        }
+
+        values[index] = value;
+        targets[index] = value;
+        defaults[index] = value;
+        starts[index] = value;
+        startTimes[index] = 0;
+        this.isInteger[index] = isInteger;
+        isActive[index] = false;
+
+        handle.table = this;
+        handle.index = index;
+        handles.add(handle);
+    }
+
+    private void release(Value handle) {
+        int index = handle.index;
+        if (isActive[index]) {
+            isActive[index] = false;
+            for (int i = 0; i < activeCount; i++) {
+                if (active[i] == index) {
+                    active[i] = active[--activeCount];
+                    break;
+                }
+            }
+        }
+
+        handles.remove(handle);
+        if (releasedCount == released.length)
+            released = Arrays.copyOf(released, released.length * 2);
+
+        released[releasedCount++] = index;
+    }
+
+    private void grow() {
+        int capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        defaults = Arrays.copyOf(defaults, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        isInteger = Arrays.copyOf(isInteger, capacity);
+        isActive = Arrays.copyOf(isActive, capacity);
+        active = Arrays.copyOf(active, capacity);
+    }
+
+    /**
+     * Adds a value to the list of animating values if it isn't
+     * at its target; it is removed again by next() once it is.
+     *
+     * @param index the index of the value
+     */
+    private void updateActive(int index) {
+        if (values[index] != targets[index] && !isActive[index]) {
+            isActive[index] = true;
+            active[activeCount++] = index;
+        }
+    }
+
+    /**
+     * Start animating a value from its current position. The animation starts
+     * at the time of the next frame, as frame times don't necessarily use the
+     * same base as System.nanoTime().
+     *
+     * @param index the index of the value
+     */
+    private void start(int index) {
+        starts[index] = values[index];
+        startTimes[index] = NOT_STARTED;
+        updateActive(index);
+    }
+
+    /**
+     * Calculate the value that a particular entry should have at a given
+     * time, decelerating towards its target over a fixed duration.
+     *
+     * @param index          the index of the value
+     * @param frameTimeNanos the time to calculate the value at
+     * @return the value of the entry at the given time
+     */
+    private float getValueAt(int index, long frameTimeNanos) {
+        long elapsed = frameTimeNanos - startTimes[index];
+        if (!isAnimated || elapsed >= DURATION)
+            return targets[index];
+
+        float progress = (float) Math.max(elapsed, 0) / DURATION;
+        float interpolation = 1 - ((1 - progress) * (1 - progress));
+        float value = starts[index] + ((targets[index] - starts[index]) * interpolation);
+        return isInteger[index] ? Math.round(value) : value;
+    }
+
+    /**
+     * A handle to a single value in an AnimationTable.
+     */
+    public static class Value {
+
+        AnimationTable table;
+        int index;
+
+        private Value() {
+        }
+
+        public boolean isTarget() {
+            return table.values[index] == table.targets[index];
+        }
+
+        public void toDefault() {
+            to(table.defaults[index]);
+        }
+
+        void to(float target) {
+            if (table.targets[index] != target) {
+                table.targets[index] = target;
+                table.start(index);
+            }
+        }
+
+        void setCurrent(float value) {
+            table.values[index] = value;
+            table.start(index);
+        }
+
+        void setDefault(float value) {
+            table.defaults[index] = value;
+        }
+
+        /**
+         * Remove the value from its table; the handle should
+         * not be used again after this is called.
+         */
+        public void release() {
+            table.release(this);
+        }
+    }
+
+    public static class IntValue extends Value {
+
+        private IntValue() {
+        }
+
+        public int val() {
+            return (int) table.values[index];
+        }
+
+        public int getTarget() {
+            return (int) table.targets[index];
+        }
+
+        public int getDefault() {
+            return (int) table.defaults[index];
+        }
+
+        public void to(int target) {
+            super.to(target);
+        }
+
+        public void setCurrent(int value) {
+            super.setCurrent(value);
+        }
+
+        public void setDefault(int value) {
+            super.setDefault(value);
+        }
+    }
+
+    public static class FloatValue extends Value {
+
+        private FloatValue() {
+        }
+
+        public float val() {
+            return table.values[index];
+        }
+
+        public float getTarget() {
+            return table.targets[index];
+        }
+
+        public float getDefault() {
+            return table.defaults[index];
+        }
+
+        @Override
+        public void to(float target) {
+            super.to(target);
+        }
+
+        @Override
+        public void setCurrent(float value) {
+            super.setCurrent(value);
+        }
+
+        @Override
+        public void setDefault(float value) {
+            super.setDefault(value);
+        }
+    }
+
+    /**
+     * A color in an AnimationTable, which animates each of its
+     * channels as a separate value.
+     */
+    public static class ColorValue {
+
+        private IntValue alpha, red, green, blue;
+
+        private ColorValue(IntValue alpha, IntValue red, IntValue green, IntValue blue) {
+            this.alpha = alpha;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+        }
+
+        @ColorInt
+        public int val() {
+            return Color.argb(alpha.val(), red.val(), green.val(), blue.val());
+        }
+
+        @ColorInt
+        public int getTarget() {
+            return Color.argb(alpha.getTarget(), red.getTarget(), green.getTarget(), blue.getTarget());
+        }
+
+        @ColorInt
+        public int getDefault() {
+            return Color.argb(alpha.getDefault(), red.getDefault(), green.getDefault(), blue.getDefault());
+        }
+
+        public boolean isTarget() {
+            return alpha.isTarget() && red.isTarget() && green.isTarget() && blue.isTarget();
+        }
+
+        public void to(@ColorInt int color) {
+            alpha.to(Color.alpha(color));
+            red.to(Color.red(color));
+            green.to(Color.green(color));
+            blue.to(Color.blue(color));
+        }
+
+        public void toDefault() {
+            alpha.toDefault();
+            red.toDefault();
+            green.toDefault();
+            blue.toDefault();
+        }
+
+        public void setCurrent(@ColorInt int color) {
+            alpha.setCurrent(Color.alpha(color));
+            red.setCurrent(Color.red(color));
+            green.setCurrent(Color.green(color));
+            blue.setCurrent(Color.blue(color));
+        }
+
+        public void setDefault(@ColorInt int color) {
+            alpha.setDefault(Color.alpha(color));
+            red.setDefault(Color.red(color));
+            green.setDefault(Color.green(color));
+            blue.setDefault(Color.blue(color));
+        }
+
+        public void release() {
+            alpha.release();
+            red.release();
+            green.release();
+            blue.release();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.utils;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Loads the fonts in the app's assets, keeping a single copy of each
+ * font (and of each style of it) for the lifetime of the process, as
+ * parsing a font file is fairly expensive.
+ */
+public class FontUtils {
+
+    private static final Map<String, Typeface> fonts = new HashMap<>();
+    private static final Map<String, SparseArray<Typeface>> styledFonts = new HashMap<>();
+
+    /**
+     * Get a font from the app's assets.
+     *
+     * @param context the current application context
+     * @param name    the file name of the font in the assets
+     * @return the loaded font, or null if it couldn't be loaded
+     */
+    @Nullable
+    public static synchronized Typeface getFont(Context context, String name) {
+        if (fonts.containsKey(name))
+            return fonts.get(name);
+
+        Typeface typeface = null;
+        try {
+            typeface = Typeface.createFromAsset(context.getApplicationContext().getAssets(), name);
+        } catch (Exception ignored) {
+        }
+
+        fonts.put(name, typeface);
+        return typeface;
+    }
+
+    /**
+     * Get a font from the app's assets with a particular style applied,
+     * falling back to the default font if it can't be loaded.
+     *
+     * @param context the current application context
+     * @param name    the file name of the font in the assets, or null to use the default font
+     * @param style   the style of the font, such as Typeface.BOLD
+     * @return the styled font
+     */
+    public static synchronized Typeface getTypeface(Context context, @Nullable String name, int style) {
+        String key = name != null ? name : "";
+        SparseArray<Typeface> styles = styledFonts.get(key);
+        if (styles == null) {
+            styles = new SparseArray<>();
+            styledFonts.put(key, styles);
+        }
+
+        Typeface typeface = styles.get(style);
+        if (typeface == null) {
+            Typeface font = name != null ? getFont(context, name) : null;
+            typeface = Typeface.create(font != null ? font : Typeface.DEFAULT, style);
+            styles.put(style, typeface);
+        }
+
+        return typeface;
+    }
+
+}
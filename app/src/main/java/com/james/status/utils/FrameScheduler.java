@@ -0,0 +1,148 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Schedules frames of a view at most once per vsync, optionally capped
+ * to a lower frame rate. Any amount of frame requests made before the
+ * next vsync are collapsed into a single frame, and nothing is scheduled
+ * at all until another frame is requested. Frames are delivered on the
+ * thread that the scheduler was created on.
+ */
+public class FrameScheduler implements Choreographer.FrameCallback {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MINUTE = 60 * NANOS_PER_SECOND;
+
+    /**
+     * Tolerance for vsync jitter, so that (for example) a 30fps cap
+     * on a 60Hz display doesn't end up skipping two vsyncs at a time.
+     */
+    private static final long FRAME_SLACK = 2000000L;
+
+    private Choreographer choreographer;
+    private Looper looper;
+    private Handler handler;
+    private OnFrameListener listener;
+
+    private long frameInterval;
+    private long lastFrameTime;
+    private boolean isScheduled;
+
+    private long minuteStartTime;
+    private int minuteFrames, framesPerMinute;
+
+    private Runnable requestRunnable = this::requestFrame;
+
+    /**
+     * Creates a new FrameScheduler. This must be called from a thread
+     * with a Looper, such as the main thread.
+     *
+     * @param listener the listener to invoke on each frame
+     */
+    public FrameScheduler(OnFrameListener listener) {
+        this.listener = listener;
+        choreographer = Choreographer.getInstance();
+        looper = Looper.myLooper();
+        handler = new Handler(looper);
+        minuteStartTime = System.nanoTime();
+    }
+
+    /**
+     * Set the maximum amount of frames to draw per second.
+     *
+     * @param frameRate the frame rate cap, or 0 to draw on every vsync
+     */
+    public void setFrameRate(int frameRate) {
+        frameInterval = frameRate > 0 ? NANOS_PER_SECOND / frameRate : 0;
+    }
+
+    /**
+     * Request that a frame is drawn at the next available vsync. This
+     * can be called from any thread.
+     */
+    public void requestFrame() {
+        if (Looper.myLooper() != looper) {
+            handler.post(requestRunnable);
+            return;
+        }
+
+        if (!isScheduled) {
+            isScheduled = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Cancel any frame that has been requested but not yet drawn.
+     */
+    public void cancel() {
+        handler.removeCallbacks(requestRunnable);
+        if (isScheduled) {
+            choreographer.removeFrameCallback(this);
+            isScheduled = false;
+        }
+    }
+
+    public boolean isScheduled() {
+        return isScheduled;
+    }
+
+    /**
+     * Get the amount of frames that were drawn over the last full minute.
+     *
+     * @return the amount of frames drawn in the last minute
+     */
+    public int getFramesPerMinute() {
+        long elapsed = System.nanoTime() - minuteStartTime;
+        if (elapsed >= 2 * NANOS_PER_MINUTE)
+            return 0;
+        else if (elapsed >= NANOS_PER_MINUTE)
+            return minuteFrames;
+        else return framesPerMinute;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isScheduled = false;
+
+        if (frameInterval > 0 && frameTimeNanos - lastFrameTime + FRAME_SLACK < frameInterval) {
+            requestFrame();
+            return;
+        }
+
+        lastFrameTime = frameTimeNanos;
+
+        if (frameTimeNanos - minuteStartTime >= NANOS_PER_MINUTE) {
+            framesPerMinute = frameTimeNanos - minuteStartTime < 2 * NANOS_PER_MINUTE ? minuteFrames : 0;
+            minuteFrames = 0;
+            minuteStartTime = frameTimeNanos;
+        }
+
+        minuteFrames++;
+        listener.onFrame(frameTimeNanos);
+    }
+
+    public interface OnFrameListener {
+        void onFrame(long frameTimeNanos);
+    }
+
+}
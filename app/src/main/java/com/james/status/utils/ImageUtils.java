@@ -27,8 +27,8 @@ import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.util.Log;
-import android.view.WindowManager;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
@@ -81,7 +81,7 @@ public class ImageUtils {
         if (context == null || source == null) return null;
 
         Point size = new Point();
-        ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay().getSize(size);
+        StaticUtils.getDisplaySize(context, size);
 
         try {
             return Bitmap.createBitmap(source, (source.getWidth() - size.x) / 2, 0, size.x, StaticUtils.getStatusBarHeight(context));
@@ -91,6 +91,46 @@ public class ImageUtils {
         }
     }
 
+    /**
+     * Move an immutable bitmap into graphics memory (on API 26+), so that
+     * it doesn't take up any space on the heap and isn't uploaded again
+     * whenever it is drawn. Hardware bitmaps can only be drawn by
+     * hardware accelerated canvases, and their pixels can't be read.
+     *
+     * @param bitmap the bitmap to convert
+     * @return the hardware bitmap, or the original bitmap if it can't be converted
+     */
+    public static Bitmap toHardwareBitmap(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() != Bitmap.Config.HARDWARE) {
+            Bitmap hardwareBitmap = bitmap.copy(Bitmap.Config.HARDWARE, false);
+            if (hardwareBitmap != null)
+                return hardwareBitmap;
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Copy a hardware bitmap back into a normal bitmap, so
+     * that it can be drawn by a software canvas.
+     *
+     * @param bitmap the bitmap to convert
+     * @return a software copy of the bitmap, or the original bitmap if it isn't a hardware bitmap
+     */
+    public static Bitmap toSoftwareBitmap(Bitmap bitmap) {
+        if (isHardwareBitmap(bitmap)) {
+            Bitmap softwareBitmap = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            if (softwareBitmap != null)
+                return softwareBitmap;
+        }
+
+        return bitmap;
+    }
+
+    public static boolean isHardwareBitmap(@Nullable Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap != null && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+    }
+
     public static Bitmap tintBitmap(Bitmap source, @ColorInt int color) {
         Bitmap bitmap = Bitmap.createBitmap(source);
 
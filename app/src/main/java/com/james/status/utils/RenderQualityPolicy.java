@@ -0,0 +1,205 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.james.status.R;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.StringRes;
+
+/**
+ * Decides whether the status bar should be drawn at a lower quality, based
+ * on whether the device is in power save mode, is running hot, or is low
+ * on battery. While any of these apply, the status bar should be drawn at
+ * a lower frame rate, without animations, and without drawing the wallpaper
+ * behind it.
+ */
+public class RenderQualityPolicy {
+
+    private static final String TAG = "RenderQualityPolicy";
+
+    public static final int REDUCED_FRAME_RATE = 20;
+    private static final int LOW_BATTERY_PERCENT = 15;
+    private static final int RECOVERED_BATTERY_PERCENT = 17;
+    private static final int HOT_BATTERY_TEMPERATURE = 450; //in tenths of a degree celsius
+    private static final int COOL_BATTERY_TEMPERATURE = 430;
+
+    public enum Reason {
+        NONE(R.string.render_quality_full),
+        POWER_SAVE(R.string.render_quality_power_save),
+        THERMAL(R.string.render_quality_thermal),
+        LOW_BATTERY(R.string.render_quality_low_battery);
+
+        @StringRes
+        private int description;
+
+        Reason(@StringRes int description) {
+            this.description = description;
+        }
+
+        /**
+         * Get a description of the quality that the status bar
+         * is drawn at for this reason, to show to the user.
+         *
+         * @param context the current application context
+         * @return a description of the current render quality
+         */
+        public String getDescription(Context context) {
+            return context.getString(description);
+        }
+    }
+
+    /**
+     * The reason that the registered policy (if there is one) is currently
+     * applying, so that anything showing the reason can show the same one
+     * rather than evaluating it again without the current reason's margin.
+     */
+    @Nullable
+    private static volatile Reason registeredReason;
+
+    private Context context;
+    private OnPolicyChangedListener listener;
+    private BroadcastReceiver receiver;
+    private Reason reason = Reason.NONE;
+
+    public RenderQualityPolicy(Context context, OnPolicyChangedListener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    /**
+     * Start listening for changes to the device's power state. The
+     * listener is called on the thread that this is called from.
+     */
+    public void register() {
+        if (receiver != null)
+            return;
+
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction()))
+                    update(intent);
+                else update(null);
+            }
+        };
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+
+        update(context.registerReceiver(receiver, filter, null, new Handler()));
+    }
+
+    public void unregister() {
+        if (receiver != null) {
+            context.unregisterReceiver(receiver);
+            receiver = null;
+            registeredReason = null;
+        }
+    }
+
+    /**
+     * Determine whether the status bar should currently be drawn at a reduced quality.
+     *
+     * @return true if the status bar should be drawn at a reduced quality
+     */
+    public boolean isReduced() {
+        return reason != Reason.NONE;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    private void update(@Nullable Intent battery) {
+        if (battery == null)
+            battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+
+        Reason reason = getReason(context, battery, this.reason);
+        registeredReason = reason;
+        if (reason != this.reason) {
+            Log.i(TAG, "Render quality changed from " + this.reason.name() + " to " + reason.name());
+            this.reason = reason;
+            listener.onPolicyChanged();
+        }
+    }
+
+    /**
+     * Get the reason that the status bar should be drawn at a reduced quality
+     * at the moment, without needing to register a RenderQualityPolicy. If
+     * the status bar has one registered, this is the reason that it is
+     * currently applying.
+     *
+     * @param context the current application context
+     * @return the current reason to reduce the render quality
+     */
+    public static Reason getReason(Context context) {
+        Reason reason = registeredReason;
+        if (reason != null)
+            return reason;
+
+        return getReason(context, context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED)), Reason.NONE);
+    }
+
+    /**
+     * Get the reason to reduce the render quality for a particular battery
+     * state. The device needs to cool down or charge a little further than
+     * the thresholds before the current reason stops applying, so that the
+     * quality doesn't switch back and forth while it is close to one of them.
+     *
+     * @param context the current application context
+     * @param battery the last ACTION_BATTERY_CHANGED broadcast, if any
+     * @param current the reason that currently applies
+     * @return the reason to reduce the render quality
+     */
+    private static Reason getReason(Context context, @Nullable Intent battery, Reason current) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && powerManager != null && powerManager.isPowerSaveMode())
+            return Reason.POWER_SAVE;
+
+        if (battery != null) {
+            int temperature = battery.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+            if (temperature >= (current == Reason.THERMAL ? COOL_BATTERY_TEMPERATURE : HOT_BATTERY_TEMPERATURE))
+                return Reason.THERMAL;
+
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_UNKNOWN);
+            boolean isCharging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+            int lowPercent = current == Reason.LOW_BATTERY ? RECOVERED_BATTERY_PERCENT : LOW_BATTERY_PERCENT;
+            if (!isCharging && level >= 0 && scale > 0 && (level * 100) / scale <= lowPercent)
+                return Reason.LOW_BATTERY;
+        }
+
+        return Reason.NONE;
+    }
+
+    public interface OnPolicyChangedListener {
+        void onPolicyChanged();
+    }
+}
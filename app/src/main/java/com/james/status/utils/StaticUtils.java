@@ -25,11 +25,16 @@ import android.content.ContextWrapper;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.graphics.Point;
+import android.hardware.display.DisplayManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.PowerManager;
 import android.preference.PreferenceManager;
 import android.provider.Settings;
 import android.util.Log;
+import android.view.WindowManager;
 
 import com.james.status.BuildConfig;
 import com.james.status.activities.StartActivity;
@@ -49,6 +54,9 @@ import androidx.core.content.ContextCompat;
 
 public class StaticUtils {
 
+    @Nullable
+    private static Point displaySize;
+
     @Nullable
     public static AppCompatActivity getActivity(@Nullable Context context) {
         while (context instanceof ContextWrapper) {
@@ -61,7 +69,7 @@ public class StaticUtils {
     }
 
     public static int getStatusBarHeight(Context context) {
-        int height = PreferenceData.STATUS_HEIGHT.getValue(context);
+        int height = PreferenceData.STATUS_HEIGHT.getInt(context);
         if (height > 0)
             return height;
 
@@ -110,6 +118,59 @@ public class StaticUtils {
         return true;
     }
 
+    public static boolean isScreenOn(Context context) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager == null)
+            return true;
+        else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH)
+            return powerManager.isInteractive();
+        else return powerManager.isScreenOn();
+    }
+
+    /**
+     * Get the size of the default display. This is cached for as long as
+     * the display doesn't change (which is tracked by a DisplayManager
+     * listener), as it is read fairly often.
+     *
+     * @param context the current application context
+     * @param size    the point to write the size of the display to
+     */
+    public static synchronized void getDisplaySize(Context context, Point size) {
+        Point displaySize = StaticUtils.displaySize;
+        if (displaySize == null) {
+            displaySize = new Point();
+            ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay().getSize(displaySize);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                DisplayManager displayManager = (DisplayManager) context.getApplicationContext().getSystemService(Context.DISPLAY_SERVICE);
+                if (displayManager != null) {
+                    displayManager.registerDisplayListener(new DisplayManager.DisplayListener() {
+                        @Override
+                        public void onDisplayAdded(int displayId) {
+                        }
+
+                        @Override
+                        public void onDisplayRemoved(int displayId) {
+                        }
+
+                        @Override
+                        public void onDisplayChanged(int displayId) {
+                            synchronized (StaticUtils.class) {
+                                StaticUtils.displaySize = null;
+                            }
+
+                            displayManager.unregisterDisplayListener(this);
+                        }
+                    }, new Handler(Looper.getMainLooper()));
+
+                    StaticUtils.displaySize = displaySize;
+                }
+            }
+        }
+
+        size.set(displaySize.x, displaySize.y);
+    }
+
     public static boolean canDrawOverlays(Context context) {
         return Build.VERSION.SDK_INT < Build.VERSION_CODES.M || Settings.canDrawOverlays(context);
     }
@@ -123,7 +184,7 @@ public class StaticUtils {
             if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
                 if (BuildConfig.DEBUG)
                     Log.wtf("Permission", "missing " + permission);
-                return PreferenceData.STATUS_IGNORE_PERMISSION_CHECKING.getValue(context);
+                return PreferenceData.STATUS_IGNORE_PERMISSION_CHECKING.getBoolean(context);
             }
         }
 
@@ -136,7 +197,7 @@ public class StaticUtils {
                 if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
                     if (BuildConfig.DEBUG)
                         Log.wtf("Permission", "missing " + permission);
-                    return PreferenceData.STATUS_IGNORE_PERMISSION_CHECKING.getValue(context);
+                    return PreferenceData.STATUS_IGNORE_PERMISSION_CHECKING.getBoolean(context);
                 }
             }
         }
@@ -156,7 +217,7 @@ public class StaticUtils {
     }
 
     public static boolean isStatusServiceRunning(Context context) {
-        if (context != null && (boolean) PreferenceData.STATUS_ENABLED.getValue(context) && isReady(context)) {
+        if (context != null && PreferenceData.STATUS_ENABLED.getBoolean(context) && isReady(context)) {
             ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
             if (manager != null) {
                 for (ActivityManager.RunningServiceInfo service : manager.getRunningServices(Integer.MAX_VALUE)) {
@@ -204,7 +265,7 @@ public class StaticUtils {
     }
 
     public static boolean shouldUseCompatNotifications(Context context) {
-        return Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2 || (boolean) PreferenceData.STATUS_NOTIFICATIONS_COMPAT.getValue(context);
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2 || PreferenceData.STATUS_NOTIFICATIONS_COMPAT.getBoolean(context);
     }
 
     public static boolean isReady(Context context) {
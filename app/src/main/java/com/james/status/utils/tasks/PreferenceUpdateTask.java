@@ -41,9 +41,11 @@ public class PreferenceUpdateTask extends AsyncTask<Object, Object, Object> {
             return null;
 
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        Map<String, ?> items = prefs.getAll();
-        for (String key : items.keySet()) {
-            if ((int) PreferenceData.PREF_VERSION.getValue(context) == 0) {
+        int version = PreferenceData.PREF_VERSION.getInt(context);
+
+        if (version < 1) {
+            Map<String, ?> items = prefs.getAll();
+            for (String key : items.keySet()) {
                 if (key.startsWith("COLOR/")) {
                     String[] packages = key.substring("COLOR/".length()).split("/");
                     if (packages.length == 2 && prefs.contains("COLOR/" + packages[0] + "/" + packages[1])) {
@@ -96,17 +98,47 @@ public class PreferenceUpdateTask extends AsyncTask<Object, Object, Object> {
                         }
                     }
                 } else continue;
+
+                prefs.edit().remove(key).apply();
+
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return null;
+                }
             }
+        }
+
+        if (version < 2) {
+            //arrays used to be stored as "name-length" and "name-0", "name-1", ...
+            //(these may have already been moved into their stores; see PreferenceData.splitStores())
+            for (PreferenceData.Store store : PreferenceData.Store.values()) {
+                SharedPreferences storePrefs = store.getPreferences(context);
+                Map<String, ?> items = storePrefs.getAll();
+                for (String key : items.keySet()) {
+                    Object length = items.get(key);
+                    if (!key.endsWith("-length") || !(length instanceof Integer))
+                        continue;
 
-            prefs.edit().remove(key).apply();
+                    String name = key.substring(0, key.length() - "-length".length());
+                    SharedPreferences.Editor editor = storePrefs.edit();
 
-            try {
-                Thread.sleep(20);
-            } catch (InterruptedException e) {
-                return null;
+                    Object[] array = new Object[(Integer) length];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = items.get(name + "-" + i);
+                        editor.remove(name + "-" + i);
+                    }
+
+                    editor.putString(name, PreferenceData.encodeArray(array));
+                    editor.remove(key);
+                    editor.apply();
+                }
             }
         }
 
+        if (version < 3 && !PreferenceData.splitStores(context))
+            return null;
+
         PreferenceData.PREF_VERSION.setValue(context, PreferenceData.VERSION);
 
         return null;
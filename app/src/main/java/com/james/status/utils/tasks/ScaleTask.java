@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.utils.tasks;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Creates a scaled version of an image (or anything else that is too
+ * expensive to create in the middle of a frame) on a background thread,
+ * then passes it back on the thread that the task was created on.
+ */
+public class ScaleTask<T> extends AsyncTask<Void, Void, T> {
+
+    private final Scalable<T> scalable;
+    private final Looper looper;
+
+    public ScaleTask(Scalable<T> scalable) {
+        this.scalable = scalable;
+
+        Looper looper = Looper.myLooper();
+        this.looper = looper != null ? looper : Looper.getMainLooper();
+    }
+
+    /**
+     * Start scaling on the shared thread pool, so that it isn't
+     * queued up behind any other (possibly slow) tasks.
+     */
+    public void start() {
+        executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @Override
+    protected T doInBackground(Void... voids) {
+        try {
+            return scalable.scale();
+        } catch (OutOfMemoryError e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    protected void onPostExecute(T result) {
+        if (looper == Looper.getMainLooper())
+            scalable.onScaled(result);
+        else new Handler(looper).post(() -> scalable.onScaled(result));
+    }
+
+    public interface Scalable<T> {
+        @Nullable
+        T scale();
+
+        void onScaled(@Nullable T result);
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.james.status.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+
+/**
+ * Draws a StatusView onto its own surface from a separate thread, so that
+ * drawing the status bar never has to wait for (or hold up) the main thread.
+ *
+ * The StatusView is created on the render thread and is never attached to
+ * a window; everything that interacts with it (including its icons) has to
+ * be run on the render thread using runOnStatusView().
+ */
+public class StatusSurfaceView extends SurfaceView implements SurfaceHolder.Callback, StatusView.OnInvalidateListener {
+
+    private HandlerThread thread;
+    private Handler handler;
+    private StatusView statusView;
+
+    private final Object surfaceLock = new Object();
+    private boolean isSurfaceValid;
+    private Rect dirtyRect;
+
+    public StatusSurfaceView(Context context) {
+        super(context);
+        dirtyRect = new Rect();
+
+        setZOrderOnTop(true);
+        getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        getHolder().addCallback(this);
+
+        thread = new HandlerThread("StatusRenderThread", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(() -> {
+            statusView = new StatusView(context);
+            statusView.setOnInvalidateListener(this);
+        });
+    }
+
+    /**
+     * Run something that interacts with the StatusView on the thread that
+     * it is drawn from. The StatusView is created on that thread before
+     * anything else is run there, so it always exists by the time the
+     * runnable is run.
+     *
+     * @param runnable the runnable to run
+     */
+    public void runOnStatusView(StatusViewRunnable runnable) {
+        handler.post(() -> runnable.run(statusView));
+    }
+
+    /**
+     * Set whether the surface should be opaque, which allows it to be
+     * composited without blending it with whatever is behind it. This
+     * recreates the surface, so it shouldn't be changed too often.
+     *
+     * @param isOpaque true if everything drawn on the surface is opaque
+     */
+    public void setOpaque(boolean isOpaque) {
+        getHolder().setFormat(isOpaque ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT);
+    }
+
+    /**
+     * Unregister the StatusView and stop the render thread; the
+     * view can't be used again after this has been called.
+     */
+    public void release() {
+        handler.post(() -> {
+            statusView.unregister();
+            statusView.setOnInvalidateListener(null);
+            thread.quit();
+        });
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            isSurfaceValid = true;
+        }
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, final int width, final int height) {
+        handler.post(() -> {
+            statusView.measure(
+                    View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+            );
+            statusView.layout(0, 0, width, height);
+            onInvalidate(0, 0, width, height);
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            isSurfaceValid = false;
+        }
+    }
+
+    @Override
+    public void onInvalidate(int left, int top, int right, int bottom) {
+        synchronized (surfaceLock) {
+            if (!isSurfaceValid)
+                return;
+
+            dirtyRect.set(left, top, right, bottom);
+            Canvas canvas = getHolder().lockCanvas(dirtyRect);
+            if (canvas == null)
+                return;
+
+            try {
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                if (statusView.getVisibility() == View.VISIBLE) {
+                    int saveCount = statusView.getAlpha() < 1
+                            ? canvas.saveLayerAlpha(0, 0, canvas.getWidth(), canvas.getHeight(), (int) (statusView.getAlpha() * 255), Canvas.ALL_SAVE_FLAG)
+                            : canvas.save();
+
+                    canvas.translate(0, statusView.getTranslationY());
+                    statusView.draw(canvas);
+                    canvas.restoreToCount(saveCount);
+                }
+            } finally {
+                getHolder().unlockCanvasAndPost(canvas);
+            }
+        }
+    }
+
+    public interface StatusViewRunnable {
+        /**
+         * Called on the render thread with the StatusView that is drawn on the surface.
+         */
+        void run(StatusView statusView);
+    }
+}
@@ -26,37 +26,54 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Handler;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.View;
+import android.widget.FrameLayout;
 
 import com.james.status.data.PreferenceData;
 import com.james.status.data.icon.IconData;
+import com.james.status.utils.AnimationTable;
 import com.james.status.utils.ColorUtils;
+import com.james.status.utils.FrameScheduler;
 import com.james.status.utils.ImageUtils;
+import com.james.status.utils.RenderQualityPolicy;
 import com.james.status.utils.StaticUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
+import androidx.collection.ArrayMap;
 import me.jfenn.androidutils.DimenUtils;
-import me.jfenn.androidutils.anim.AnimatedColor;
-import me.jfenn.androidutils.anim.AnimatedInteger;
 
-public class StatusView extends View implements IconData.ReDrawListener {
+public class StatusView extends FrameLayout implements IconData.ReDrawListener {
+
+    private static final String TAG = "StatusView";
 
     private int burnInOffsetX, burnInOffsetY;
 
-    private AnimatedColor backgroundColor;
+    /**
+     * Holds the animated values of the view and all of its icons, which
+     * are updated together once per frame.
+     */
+    private AnimationTable animations;
+    private AnimationTable.ColorValue backgroundColor;
     private Paint paint;
 
     @Nullable
     private Bitmap backgroundImage;
-    private boolean needsBackgroundImageDraw;
+    @ColorInt
+    private int backgroundImageColor;
+    private boolean isHardwareBitmaps;
 
     /**
      * True if ".register()" has been called on all of the icons
@@ -69,14 +86,66 @@ public class StatusView extends View implements IconData.ReDrawListener {
     private boolean isFullscreen;
     private boolean isSystemShowing;
 
+    /**
+     * True while nothing on the status bar can be seen (the screen is off
+     * or the view is hidden), in which case no frames are drawn and icons that
+     * can be paused don't receive any updates.
+     */
+    private boolean isPaused;
+    private boolean isScreenOn = true;
+
     private boolean isTransparentHome;
-    private AnimatedInteger sidePadding;
+    private boolean isTransparentMode;
+    private boolean isVisibilityAnimating;
+    private boolean isOpaque;
+    private AnimationTable.IntValue sidePadding;
     private boolean isAnimations;
+    private boolean isBackgroundAnimations;
+    private int frameRate;
+
+    private RenderQualityPolicy renderQuality;
+    private boolean isAdaptiveQuality;
+    private boolean isReducedQuality;
 
     private List<IconData> icons, leftIcons, centerIcons, rightIcons;
     private WallpaperManager wallpaperManager;
 
+    private Map<IconData, Rect> iconBounds;
+    private Rect dirtyRect, invalidRect;
+    private boolean isFullyDirty;
+    private boolean isLayoutValid;
+
+    /**
+     * A copy of the icons as they were last drawn while nothing was
+     * animating, which is replayed until something changes. The
+     * background and burn-in offset are applied when it is drawn,
+     * so neither of them require the icons to be drawn again. This
+     * is only used when the view is drawn by a software canvas (such
+     * as the surface of a StatusSurfaceView), as a hardware canvas
+     * would need to upload it again every time that it changes.
+     */
+    @Nullable
+    private Bitmap frameCache;
+    private Canvas frameCacheCanvas;
+    private Rect frameCacheDirtyRect;
+    private boolean isFrameCache;
+    private boolean isFrameCacheFullyDirty;
+
+    /**
+     * Draws the icons separately from the background while the view is
+     * drawn by a hardware accelerated window, where they are kept in a
+     * hardware layer (instead of the frame cache) while nothing is animating.
+     */
+    private View iconLayer;
+    private boolean isIconLayer;
+
+    @Nullable
+    private OnInvalidateListener onInvalidateListener;
+    @Nullable
+    private OnOpacityChangedListener onOpacityChangedListener;
+
     private Handler handler;
+    private FrameScheduler frameScheduler;
     private Runnable burnInRunnable = new Runnable() {
         @Override
         public void run() {
@@ -111,7 +180,7 @@ public class StatusView extends View implements IconData.ReDrawListener {
                 }
             }
 
-            postInvalidate();
+            invalidateBurnIn();
         }
     };
 
@@ -125,12 +194,24 @@ public class StatusView extends View implements IconData.ReDrawListener {
 
     public StatusView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        setWillNotDraw(false);
+
+        iconLayer = new IconLayerView(context);
+        iconLayer.setVisibility(View.GONE);
+        addView(iconLayer, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+
         icons = new ArrayList<>();
         leftIcons = new ArrayList<>();
         centerIcons = new ArrayList<>();
         rightIcons = new ArrayList<>();
+        iconBounds = new ArrayMap<>();
+        dirtyRect = new Rect();
+        invalidRect = new Rect();
+        frameCacheDirtyRect = new Rect();
 
         handler = new Handler();
+        frameScheduler = new FrameScheduler(this::onFrame);
+        renderQuality = new RenderQualityPolicy(getContext(), this::updateRenderQuality);
         wallpaperManager = WallpaperManager.getInstance(getContext());
 
         paint = new Paint();
@@ -138,7 +219,8 @@ public class StatusView extends View implements IconData.ReDrawListener {
         paint.setFilterBitmap(true);
         paint.setDither(true);
 
-        backgroundColor = new AnimatedColor((int) PreferenceData.STATUS_COLOR.getValue(getContext()));
+        animations = new AnimationTable();
+        backgroundColor = animations.addColor(PreferenceData.STATUS_COLOR.getColor(getContext()));
         init();
     }
 
@@ -148,16 +230,27 @@ public class StatusView extends View implements IconData.ReDrawListener {
     }
 
     public void init() {
-        isAnimations = PreferenceData.STATUS_ICON_ANIMATIONS.getValue(getContext());
-        backgroundColor.setDefault((int) PreferenceData.STATUS_COLOR.getValue(getContext()));
-        isTransparentHome = PreferenceData.STATUS_HOME_TRANSPARENT.getValue(getContext());
-
-        int sidePaddingInt = DimenUtils.dpToPx((int) PreferenceData.STATUS_SIDE_PADDING.getValue(getContext()));
+        isAnimations = PreferenceData.STATUS_ICON_ANIMATIONS.getBoolean(getContext());
+        isBackgroundAnimations = PreferenceData.STATUS_BACKGROUND_ANIMATIONS.getBoolean(getContext());
+        frameRate = PreferenceData.STATUS_FRAME_RATE.getInt(getContext());
+        isAdaptiveQuality = PreferenceData.STATUS_ADAPTIVE_QUALITY.getBoolean(getContext());
+        updateRenderQualityRegistered();
+        updateRenderQuality();
+        backgroundColor.setDefault(PreferenceData.STATUS_COLOR.getColor(getContext()));
+        isTransparentHome = PreferenceData.STATUS_HOME_TRANSPARENT.getBoolean(getContext());
+        isTransparentMode = PreferenceData.STATUS_TRANSPARENT_MODE.getBoolean(getContext());
+
+        int sidePaddingInt = DimenUtils.dpToPx(PreferenceData.STATUS_SIDE_PADDING.getInt(getContext()));
         if (sidePadding == null)
-            sidePadding = new AnimatedInteger(sidePaddingInt);
+            sidePadding = animations.addInt(sidePaddingInt);
         else sidePadding.to(sidePaddingInt);
 
-        isBurnInProtection = PreferenceData.STATUS_BURNIN_PROTECTION.getValue(getContext());
+        isBurnInProtection = PreferenceData.STATUS_BURNIN_PROTECTION.getBoolean(getContext());
+
+        isFrameCache = PreferenceData.STATUS_FRAME_CACHE.getBoolean(getContext());
+        setUpFrameCache(getWidth(), getHeight());
+        updateIconLayerType();
+        updateIconLayerTranslation();
 
         for (IconData icon : icons)
             icon.init();
@@ -166,20 +259,28 @@ public class StatusView extends View implements IconData.ReDrawListener {
             setTransparent();
         else setColor(backgroundColor.getTarget());
 
-        if (isBurnInProtection && !isBurnInProtectionStarted) {
+        if (isBurnInProtection && !isBurnInProtectionStarted && !isPaused) {
             handler.post(burnInRunnable);
             isBurnInProtectionStarted = true;
         }
 
         sortIcons();
-        postInvalidate();
+        invalidateAll();
     }
 
     public void setIcons(List<IconData> icons) {
+        for (IconData icon : this.icons) {
+            if (!icons.contains(icon))
+                icon.releaseAnimations();
+        }
+
         this.icons.clear();
         this.icons.addAll(icons);
-        for (IconData icon : icons)
+        for (IconData icon : icons) {
             icon.setReDrawListener(this);
+            icon.setAnimationTable(animations);
+            icon.setHardwareBitmaps(isHardwareBitmaps);
+        }
         sortIcons();
     }
 
@@ -202,11 +303,15 @@ public class StatusView extends View implements IconData.ReDrawListener {
         leftIcons.clear();
         centerIcons.clear();
         rightIcons.clear();
+        iconBounds.clear();
+        isLayoutValid = false;
 
         for (IconData icon : icons) {
-            int position = PreferenceData.ICON_POSITION.getSpecificOverriddenValue(getContext(), -1, icon.getIdentifierArgs());
-            if (position < 0)
-                PreferenceData.ICON_POSITION.setValue(getContext(), icons.indexOf(icon), icon.getIdentifierArgs());
+            int position = PreferenceData.ICON_POSITION.getInt(getContext(), -1, icon.getKeys());
+            if (position < 0) {
+                PreferenceData.ICON_POSITION.setValue(getContext(), icons.indexOf(icon), icon.getKeys());
+                icon.reloadConfig();
+            }
         }
 
         Collections.sort(icons, (lhs, rhs) -> lhs.getPosition() - rhs.getPosition());
@@ -228,7 +333,7 @@ public class StatusView extends View implements IconData.ReDrawListener {
             }
         }
 
-        postInvalidate();
+        invalidateAll();
     }
 
     public List<IconData> getIcons() {
@@ -239,21 +344,171 @@ public class StatusView extends View implements IconData.ReDrawListener {
     public void register() {
         if (icons != null && !isRegistered()) {
             for (IconData icon : icons) {
-                icon.register();
+                if (!isPaused || !icon.canPause())
+                    icon.register();
             }
             isRegistered = true;
+            updateRenderQualityRegistered();
         }
     }
 
     public void unregister() {
         if (icons != null && isRegistered()) {
             for (IconData icon : icons) {
-                icon.unregister();
+                if (!isPaused || !icon.canPause())
+                    icon.unregister();
             }
             isRegistered = false;
+            updateRenderQualityRegistered();
+        }
+    }
+
+    /**
+     * Set whether the screen is currently on; the status bar is
+     * paused while it is off.
+     *
+     * @param isScreenOn true if the screen is on
+     */
+    public void setScreenOn(boolean isScreenOn) {
+        this.isScreenOn = isScreenOn;
+        updatePaused();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (changedView == this) {
+            updatePaused();
+            if (onInvalidateListener != null)
+                onInvalidateListener.onInvalidate(0, 0, getWidth(), getHeight());
+        }
+    }
+
+    /**
+     * Set a listener to be notified of the regions of the view that need
+     * to be drawn again, for when the view is drawn somewhere other than
+     * a window (such as the surface of a StatusSurfaceView) and calling
+     * invalidate() wouldn't have any effect.
+     *
+     * @param listener the listener to notify, or null to invalidate the view as normal
+     */
+    public void setOnInvalidateListener(@Nullable OnInvalidateListener listener) {
+        onInvalidateListener = listener;
+        updateRenderMode();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateRenderMode();
+    }
+
+    /**
+     * Decide how the view should be drawn, depending on whether it is drawn
+     * directly by a hardware accelerated window. If it is, the icons are drawn
+     * by the icon layer, and (on API 26+) images are stored as hardware bitmaps.
+     * Otherwise, the view is drawn by a software canvas, so the icons are
+     * cached in the frame cache and images must be software bitmaps.
+     */
+    private void updateRenderMode() {
+        boolean isIconLayer = onInvalidateListener == null && isHardwareAccelerated();
+        boolean isHardwareBitmaps = isIconLayer && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+
+        if (isIconLayer == this.isIconLayer && isHardwareBitmaps == this.isHardwareBitmaps)
+            return;
+
+        if (isHardwareBitmaps != this.isHardwareBitmaps) {
+            this.isHardwareBitmaps = isHardwareBitmaps;
+            for (IconData icon : icons)
+                icon.setHardwareBitmaps(isHardwareBitmaps);
+
+            if (backgroundImage != null)
+                backgroundImage = isHardwareBitmaps ? ImageUtils.toHardwareBitmap(backgroundImage) : ImageUtils.toSoftwareBitmap(backgroundImage);
+        }
+
+        setIconLayerEnabled(isIconLayer);
+        setUpFrameCache(getWidth(), getHeight());
+        invalidateAll();
+    }
+
+    /**
+     * Listens for changes to the render quality policy while the
+     * status bar is running, if adaptive quality is enabled.
+     */
+    private void updateRenderQualityRegistered() {
+        if (isAdaptiveQuality && isRegistered() && !isPaused)
+            renderQuality.register();
+        else renderQuality.unregister();
+    }
+
+    /**
+     * Applies the current render quality policy, drawing the status bar
+     * at a lower frame rate, without animations, and without the wallpaper
+     * in its background while the quality should be reduced. Each change is
+     * logged with the amount of frames drawn in the last minute, to show
+     * how much the status bar was drawing when it happened.
+     */
+    private void updateRenderQuality() {
+        boolean isReducedQuality = isAdaptiveQuality && renderQuality.isReduced();
+        if (isReducedQuality != this.isReducedQuality) {
+            Log.i(TAG, (isReducedQuality ? "Reducing" : "Restoring") + " render quality ("
+                    + renderQuality.getReason().name() + ") after drawing "
+                    + getFramesPerMinute() + " frames in the last minute");
+        }
+
+        this.isReducedQuality = isReducedQuality;
+        animations.setAnimated(isAnimations && !isReducedQuality);
+
+        if (isReducedQuality && (frameRate <= 0 || frameRate > RenderQualityPolicy.REDUCED_FRAME_RATE))
+            frameScheduler.setFrameRate(RenderQualityPolicy.REDUCED_FRAME_RATE);
+        else frameScheduler.setFrameRate(frameRate);
+
+        invalidateAll();
+    }
+
+    /**
+     * Pauses or resumes the status bar depending on whether
+     * it can currently be seen.
+     */
+    private void updatePaused() {
+        boolean isPaused = !isScreenOn || getVisibility() != View.VISIBLE;
+        if (isPaused == this.isPaused)
+            return;
+
+        this.isPaused = isPaused;
+        updateRenderQualityRegistered();
+        if (isPaused) {
+            handler.removeCallbacks(burnInRunnable);
+            isBurnInProtectionStarted = false;
+            frameScheduler.cancel();
+
+            if (isRegistered()) {
+                for (IconData icon : icons) {
+                    if (icon.canPause())
+                        icon.unregister();
+                }
+            }
+        } else {
+            if (isRegistered()) {
+                for (IconData icon : icons) {
+                    if (icon.canPause())
+                        icon.register();
+                }
+            }
+
+            if (isBurnInProtection && !isBurnInProtectionStarted) {
+                handler.post(burnInRunnable);
+                isBurnInProtectionStarted = true;
+            }
+
+            invalidateAll();
         }
     }
 
+    public boolean isPaused() {
+        return isPaused;
+    }
+
     public boolean isRegistered() {
         return isRegistered;
     }
@@ -269,7 +524,7 @@ public class StatusView extends View implements IconData.ReDrawListener {
     }
 
     public void setFullscreen(boolean isFullscreen) {
-        if (((getVisibility() == View.GONE) != isFullscreen) && !isSystemShowing) {
+        if (((getVisibility() != View.VISIBLE) != isFullscreen) && !isSystemShowing) {
             setStatusBarVisibility(!isFullscreen);
         }
 
@@ -281,23 +536,30 @@ public class StatusView extends View implements IconData.ReDrawListener {
     }
 
     private void setStatusBarVisibility(final boolean visible) {
-        if (isAnimations) {
+        if (isAnimations && !isReducedQuality) {
             ValueAnimator animator = ValueAnimator.ofFloat(getY(), visible ? 0 : -StaticUtils.getStatusBarHeight(getContext()));
             animator.setDuration(150);
             animator.addUpdateListener(valueAnimator -> {
                 setY((float) valueAnimator.getAnimatedValue());
                 setAlpha(visible ? valueAnimator.getAnimatedFraction() : 1 - valueAnimator.getAnimatedFraction());
+                if (onInvalidateListener != null)
+                    invalidateAll();
             });
             animator.addListener(new Animator.AnimatorListener() {
                 @Override
                 public void onAnimationStart(Animator animator) {
+                    isVisibilityAnimating = true;
+                    updateOpaque();
                     if (visible) setVisibility(View.VISIBLE);
                 }
 
                 @Override
                 public void onAnimationEnd(Animator animator) {
-                    if (!visible) setVisibility(View.GONE);
+                    if (!visible) setVisibility(View.INVISIBLE);
                     else setAlpha(1);
+
+                    isVisibilityAnimating = false;
+                    updateOpaque();
                 }
 
                 @Override
@@ -311,7 +573,7 @@ public class StatusView extends View implements IconData.ReDrawListener {
             animator.start();
         } else {
             if (visible) setVisibility(View.VISIBLE);
-            else setVisibility(View.GONE);
+            else setVisibility(View.INVISIBLE);
         }
     }
 
@@ -321,15 +583,14 @@ public class StatusView extends View implements IconData.ReDrawListener {
      * @param color a valid color int
      */
     public void setColor(@ColorInt int color) {
-        backgroundColor.to(Color.argb(PreferenceData.STATUS_TRANSPARENT_MODE.getValue(getContext()) ? Color.alpha(color) : 255,
+        setStatusBackgroundColor(Color.argb(isTransparentMode ? Color.alpha(color) : 255,
                 Color.red(color), Color.green(color), Color.blue(color)));
 
         backgroundImage = null;
-        needsBackgroundImageDraw = false;
         for (IconData icon : icons)
             icon.setBackgroundColor(color);
 
-        postInvalidate();
+        invalidateAll();
     }
 
     /**
@@ -341,7 +602,7 @@ public class StatusView extends View implements IconData.ReDrawListener {
         for (IconData icon : icons)
             icon.setIconColor(color);
 
-        postInvalidate();
+        requestFrame();
     }
 
     /**
@@ -353,7 +614,7 @@ public class StatusView extends View implements IconData.ReDrawListener {
         for (IconData icon : icons)
             icon.setTextColor(color);
 
-        postInvalidate();
+        requestFrame();
     }
 
     @ColorInt
@@ -363,17 +624,20 @@ public class StatusView extends View implements IconData.ReDrawListener {
 
     @ColorInt
     private int getDefaultColor() {
-        return PreferenceData.STATUS_COLOR.getValue(getContext());
+        return PreferenceData.STATUS_COLOR.getColor(getContext());
     }
 
     @ColorInt
     private int getDefaultIconColor() {
-        return PreferenceData.STATUS_ICON_COLOR.getValue(getContext());
+        return PreferenceData.STATUS_ICON_COLOR.getColor(getContext());
     }
 
     private void setStatusBackgroundColor(@ColorInt int color) {
         backgroundColor.to(color);
-        postInvalidate();
+        if (!isBackgroundAnimations || isReducedQuality)
+            backgroundColor.setCurrent(color);
+
+        invalidateAll();
     }
 
     public void setTransparent() {
@@ -392,112 +656,500 @@ public class StatusView extends View implements IconData.ReDrawListener {
             }
 
             backgroundImage = ImageUtils.cropBitmapToBar(getContext(), me.jfenn.androidutils.ImageUtils.drawableToBitmap(backgroundDrawable));
+            if (backgroundImage != null) {
+                backgroundImageColor = ColorUtils.getAverageColor(backgroundImage);
+                if (isHardwareBitmaps)
+                    backgroundImage = ImageUtils.toHardwareBitmap(backgroundImage);
+            }
         }
 
         if (backgroundImage != null) {
-            int color = ColorUtils.getAverageColor(backgroundImage);
-
-            setColor(color);
+            Bitmap backgroundImage = this.backgroundImage;
+            setColor(backgroundImageColor);
             if (isTransparentHome)
-                needsBackgroundImageDraw = true;
-            else backgroundImage = null;
+                this.backgroundImage = backgroundImage;
         } else setColor(backgroundColor.getDefault());
 
-        postInvalidate();
+        invalidateAll();
+    }
+
+    /**
+     * Get the amount of frames that the status bar has drawn
+     * in the last minute.
+     *
+     * @return the amount of frames drawn in the last minute
+     */
+    public int getFramesPerMinute() {
+        return frameScheduler.getFramesPerMinute();
     }
 
     @Override
-    public void onRequestReDraw() {
-        postInvalidate();
+    public void onRequestReDraw(IconData icon) {
+        if (!icon.isVisible())
+            return;
+
+        Rect bounds = iconBounds.get(icon);
+        if (bounds != null)
+            addDirtyBounds(icon, bounds);
+        else {
+            isFullyDirty = true;
+            isFrameCacheFullyDirty = true;
+        }
+
+        requestFrame();
     }
 
-    private boolean needsDraw() {
-        for (IconData icon : icons) {
-            if (icon.isVisible() && icon.needsDraw())
-                return true;
+    /**
+     * Request that the next frame is drawn, unless the status
+     * bar is paused - in which case everything that has changed
+     * is drawn at once when it is resumed.
+     */
+    private void requestFrame() {
+        if (!isPaused)
+            frameScheduler.requestFrame();
+    }
+
+    /**
+     * Mark the entire status bar as needing to be drawn again,
+     * for changes that affect more than just the icons (such as
+     * the background color).
+     */
+    private void invalidateAll() {
+        isFullyDirty = true;
+        isFrameCacheFullyDirty = true;
+        requestFrame();
+    }
+
+    /**
+     * Redraw the status bar after the burn-in offset has changed. If the
+     * icons are drawn by the icon layer, this only moves the layer; if
+     * they are cached, it only moves the cached bitmap. Neither of these
+     * draw any of the icons again.
+     */
+    private void invalidateBurnIn() {
+        if (isIconLayer) {
+            updateIconLayerTranslation();
+            return;
+        }
+
+        isFullyDirty = true;
+        if (frameCache == null)
+            isFrameCacheFullyDirty = true;
+
+        requestFrame();
+    }
+
+    /**
+     * Adds the area that an icon is drawn in to the region that needs
+     * to be drawn in the next frame.
+     *
+     * @param icon   the icon to invalidate
+     * @param bounds the bounds that the icon is drawn within
+     */
+    private void addDirtyBounds(IconData icon, Rect bounds) {
+        if (bounds.isEmpty())
+            return;
+
+        int overflow = icon.getDrawOverflow();
+        dirtyRect.union(bounds.left - overflow, bounds.top, bounds.right + overflow, bounds.bottom);
+        frameCacheDirtyRect.union(bounds.left - overflow, bounds.top, bounds.right + overflow, bounds.bottom);
+    }
+
+    /**
+     * Called by the FrameScheduler once per frame; updates the animated
+     * values, determines the positions of each icon, and invalidates only
+     * the regions of the view that have actually changed since the last frame.
+     *
+     * @param frameTimeNanos the time that the frame is being drawn for
+     */
+    private void onFrame(long frameTimeNanos) {
+        boolean isAnimating = !animations.isIdle();
+        if (isAnimating) {
+            for (int i = 0; i < icons.size(); i++) {
+                IconData icon = icons.get(i);
+                if (icon.isVisible() && icon.needsDraw()) {
+                    Rect bounds = iconBounds.get(icon);
+                    if (bounds != null)
+                        addDirtyBounds(icon, bounds);
+                    else isFullyDirty = true;
+                }
+            }
+
+            if (!backgroundColor.isTarget() || !sidePadding.isTarget())
+                isFullyDirty = true;
+
+            animations.next(frameTimeNanos);
         }
 
-        return needsBackgroundImageDraw
-                || !backgroundColor.isTarget()
-                || !sidePadding.isTarget();
+        if (needsLayout())
+            layoutIcons();
+
+        //cleared first, as an OnInvalidateListener might draw the view immediately
+        boolean isFullyDirty = this.isFullyDirty;
+        this.isFullyDirty = false;
+        invalidRect.set(dirtyRect);
+        dirtyRect.setEmpty();
+
+        if (isFullyDirty) {
+            invalidateRegion(0, 0, getWidth(), getHeight());
+            if (isIconLayer)
+                iconLayer.invalidate();
+        } else if (!invalidRect.isEmpty()) {
+            if (isIconLayer)
+                iconLayer.invalidate(invalidRect.left, invalidRect.top, invalidRect.right, invalidRect.bottom);
+            else {
+                int offsetX = isBurnInProtection ? burnInOffsetX : 0, offsetY = isBurnInProtection ? burnInOffsetY : 0;
+                invalidateRegion(invalidRect.left + offsetX, invalidRect.top + offsetY, invalidRect.right + offsetX, invalidRect.bottom + offsetY);
+            }
+        }
+
+        updateOpaque();
+        updateIconLayerType();
+
+        if (isAnimating && !animations.isIdle())
+            requestFrame();
     }
 
-    private void updateAnimatedValues() {
-        backgroundColor.next(isAnimations);
-        sidePadding.next(isAnimations);
+    /**
+     * Set a listener to be notified when the status bar changes between
+     * being fully opaque and having transparent areas, so that the window
+     * it is drawn in can be composited without blending whenever possible.
+     *
+     * @param listener the listener to notify, or null to remove it
+     */
+    public void setOnOpacityChangedListener(@Nullable OnOpacityChangedListener listener) {
+        onOpacityChangedListener = listener;
+        if (listener != null)
+            listener.onOpacityChanged(isOpaque);
     }
 
     @Override
-    public void draw(Canvas canvas) {
-        super.draw(canvas);
-        updateAnimatedValues();
+    public boolean isOpaque() {
+        return isOpaque;
+    }
 
-        if (needsBackgroundImageDraw)
-            needsBackgroundImageDraw = false;
+    /**
+     * Determine whether every pixel of the status bar is drawn fully opaque,
+     * which is only the case while the background is a solid color (and the
+     * status bar isn't being faded in or out), and notify the listener if
+     * that has changed. This is only checked once per frame, so that a few
+     * changes to the background in a row only result in one notification.
+     */
+    private void updateOpaque() {
+        boolean isOpaque = !isTransparentMode && backgroundImage == null && !isVisibilityAnimating
+                && Color.alpha(backgroundColor.getTarget()) == 255 && Color.alpha(backgroundColor.val()) == 255;
+
+        if (isOpaque != this.isOpaque) {
+            this.isOpaque = isOpaque;
+            if (onOpacityChangedListener != null)
+                onOpacityChangedListener.onOpacityChanged(isOpaque);
+        }
+    }
 
-        if (backgroundImage != null)
-            canvas.drawBitmap(backgroundImage, 0, 0, paint);
-        else canvas.drawColor(backgroundColor.val());
+    /**
+     * Invalidate a region of the view, or pass it to the OnInvalidateListener
+     * if the view is being drawn somewhere else.
+     */
+    private void invalidateRegion(int left, int top, int right, int bottom) {
+        if (onInvalidateListener != null)
+            onInvalidateListener.onInvalidate(left, top, right, bottom);
+        else invalidate(left, top, right, bottom);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        isLayoutValid = false;
+        setUpFrameCache(w, h);
+        invalidateAll();
+    }
+
+    /**
+     * Creates (or releases) the bitmap that idle frames are cached in,
+     * depending on whether the cache is enabled and the size of the view.
+     * It is also used while burn-in protection is enabled, so that each
+     * step of the offset only has to draw the bitmap in a different place.
+     *
+     * @param width  the width of the view
+     * @param height the height of the view
+     */
+    private void setUpFrameCache(int width, int height) {
+        if ((!isFrameCache && !isBurnInProtection) || isIconLayer || width <= 0 || height <= 0) {
+            frameCache = null;
+            frameCacheCanvas = null;
+        } else if (frameCache == null || frameCache.getWidth() != width || frameCache.getHeight() != height) {
+            try {
+                frameCache = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                frameCacheCanvas = new Canvas(frameCache);
+            } catch (OutOfMemoryError e) {
+                e.printStackTrace();
+                frameCache = null;
+                frameCacheCanvas = null;
+            }
+        }
+
+        isFrameCacheFullyDirty = true;
+    }
+
+    /**
+     * Set whether the icons should be drawn by the icon layer, rather
+     * than by the view itself (or the frame cache).
+     *
+     * @param isIconLayer true if the icon layer should draw the icons
+     */
+    private void setIconLayerEnabled(boolean isIconLayer) {
+        this.isIconLayer = isIconLayer;
+        iconLayer.setVisibility(isIconLayer ? View.VISIBLE : View.GONE);
+        updateIconLayerType();
+        updateIconLayerTranslation();
+    }
+
+    /**
+     * Apply the burn-in offset to the icon layer as a translation, which
+     * moves the icons without drawing them again, and without moving the
+     * background (which would leave a gap at the edge of the screen).
+     */
+    private void updateIconLayerTranslation() {
+        iconLayer.setTranslationX(isBurnInProtection ? burnInOffsetX : 0);
+        iconLayer.setTranslationY(isBurnInProtection ? burnInOffsetY : 0);
+    }
+
+    /**
+     * Keep the icon layer in a hardware layer while nothing is animating,
+     * so that drawing the view again (such as when its background changes)
+     * doesn't draw any of the icons again. While something is animating,
+     * the icons change on every frame anyway, so they are drawn directly.
+     */
+    private void updateIconLayerType() {
+        int layerType = isIconLayer && isFrameCache && isIdle() ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE;
+        if (iconLayer.getLayerType() != layerType)
+            iconLayer.setLayerType(layerType, null);
+    }
+
+    /**
+     * Determine whether the next frame will look exactly the same as
+     * the last one if nothing else changes - that is, whether all of
+     * the animated values in the view and its icons are at their targets.
+     *
+     * @return True if nothing is currently animating.
+     */
+    private boolean isIdle() {
+        return isLayoutValid && animations.isIdle();
+    }
+
+    /**
+     * Draws the parts of the frame cache that have changed since it was
+     * last drawn. As this is only called while nothing is animating, only
+     * the areas of icons that have reported a change need to be updated.
+     */
+    private void updateFrameCache() {
+        if (frameCache == null || frameCacheCanvas == null)
+            return;
+
+        if (isFrameCacheFullyDirty) {
+            frameCache.eraseColor(Color.TRANSPARENT);
+            drawIcons(frameCacheCanvas);
+        } else if (!frameCacheDirtyRect.isEmpty()) {
+            int saveCount = frameCacheCanvas.save();
+            frameCacheCanvas.clipRect(frameCacheDirtyRect);
+            frameCacheCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            drawIcons(frameCacheCanvas);
+            frameCacheCanvas.restoreToCount(saveCount);
+        }
 
-        if (isBurnInProtection)
-            canvas.translate(burnInOffsetX, burnInOffsetY);
+        isFrameCacheFullyDirty = false;
+        frameCacheDirtyRect.setEmpty();
+    }
+
+    /**
+     * Determine whether the icons need to be positioned again, which
+     * is only the case if the size of the view or of one of the icons
+     * has changed since they were last laid out.
+     *
+     * @return True if layoutIcons() needs to be called.
+     */
+    private boolean needsLayout() {
+        if (!isLayoutValid || !sidePadding.isTarget())
+            return true;
+
+        for (int i = 0; i < icons.size(); i++) {
+            IconData icon = icons.get(i);
+            if (icon.isVisible() && icon.needsLayout())
+                return true;
+        }
 
+        return false;
+    }
+
+    /**
+     * Calculates the position of each icon for the next frame. If an
+     * icon has moved or changed in size, both its old and new bounds
+     * are added to the dirty region. The positions are kept until
+     * needsLayout() reports that they might have changed, so frames
+     * that only animate colors don't need to measure anything.
+     */
+    private void layoutIcons() {
+        int width = getWidth(), height = getHeight();
+        int sidePadding = this.sidePadding.val();
         int leftWidth = 0, centerWidth = 0, rightWidth = 0;
 
-        for (IconData icon : leftIcons) {
-            int width = icon.getWidth(canvas.getHeight(), -1);
-            leftWidth += width > 0 ? width : 0;
+        for (int i = 0; i < leftIcons.size(); i++) {
+            int iconWidth = leftIcons.get(i).getWidth(height, -1);
+            leftWidth += iconWidth > 0 ? iconWidth : 0;
         }
 
-        for (IconData icon : centerIcons) {
-            int width = icon.getWidth(canvas.getHeight(), -1);
-            centerWidth += width > 0 ? width : 0;
+        for (int i = 0; i < centerIcons.size(); i++) {
+            int iconWidth = centerIcons.get(i).getWidth(height, -1);
+            centerWidth += iconWidth > 0 ? iconWidth : 0;
         }
 
-        for (IconData icon : rightIcons) {
-            int width = icon.getWidth(canvas.getHeight(), -1);
-            rightWidth += width > 0 ? width : 0;
+        for (int i = 0; i < rightIcons.size(); i++) {
+            int iconWidth = rightIcons.get(i).getWidth(height, -1);
+            rightWidth += iconWidth > 0 ? iconWidth : 0;
         }
 
-        centerWidth = Math.min(centerWidth, canvas.getWidth() - (2 * sidePadding.val()));
-        leftWidth = Math.min(leftWidth, (canvas.getWidth() / 2) - (centerWidth / 2) - sidePadding.val());
-        rightWidth = Math.min(rightWidth, (canvas.getWidth() / 2) - (centerWidth / 2) - sidePadding.val());
+        centerWidth = Math.min(centerWidth, width - (2 * sidePadding));
+        leftWidth = Math.min(leftWidth, (width / 2) - (centerWidth / 2) - sidePadding);
+        rightWidth = Math.min(rightWidth, (width / 2) - (centerWidth / 2) - sidePadding);
 
         if (leftWidth < 0 || rightWidth < 0) {
             leftWidth = 0;
             rightWidth = 0;
-            centerWidth = canvas.getWidth() - (2 * sidePadding.val());
+            centerWidth = width - (2 * sidePadding);
         }
 
-        for (int i = 0, x = sidePadding.val(); i < leftIcons.size(); i++) {
+        for (int i = 0, x = sidePadding; i < leftIcons.size(); i++) {
             IconData icon = leftIcons.get(i);
-            int width = icon.getWidth(canvas.getHeight(), leftWidth - (x - sidePadding.val()));
-            if (width > 0) {
-                icon.draw(canvas, x, width);
-                x += width;
-            } else icon.updateAnimatedValues();
+            int iconWidth = Math.max(icon.getWidth(height, leftWidth - (x - sidePadding)), 0);
+            setIconBounds(icon, x, iconWidth, height);
+            x += iconWidth;
         }
 
-        for (int i = 0, x = (canvas.getWidth() / 2) - (centerWidth / 2); i < centerIcons.size(); i++) {
+        for (int i = 0, x = (width / 2) - (centerWidth / 2); i < centerIcons.size(); i++) {
             IconData icon = centerIcons.get(i);
-            int width = icon.getWidth(canvas.getHeight(), centerWidth - x);
-            if (width > 0) {
-                icon.draw(canvas, x, width);
-                x += width;
-            } else icon.updateAnimatedValues();
+            int iconWidth = Math.max(icon.getWidth(height, centerWidth - x), 0);
+            setIconBounds(icon, x, iconWidth, height);
+            x += iconWidth;
         }
 
-        for (int i = 0, x = canvas.getWidth() - sidePadding.val(); i < rightIcons.size(); i++) {
+        for (int i = 0, x = width - sidePadding; i < rightIcons.size(); i++) {
             IconData icon = rightIcons.get(i);
-            int width = icon.getWidth(canvas.getHeight(), rightWidth - x);
-            if (width > 0) {
-                icon.draw(canvas, x - width, width);
-                x -= width;
-            } else icon.updateAnimatedValues();
+            int iconWidth = Math.max(icon.getWidth(height, rightWidth - x), 0);
+            setIconBounds(icon, x - iconWidth, iconWidth, height);
+            x -= iconWidth;
+        }
+
+        isLayoutValid = true;
+    }
+
+    private void setIconBounds(IconData icon, int x, int width, int height) {
+        Rect bounds = iconBounds.get(icon);
+        if (bounds == null) {
+            bounds = new Rect();
+            iconBounds.put(icon, bounds);
+        }
+
+        if (bounds.left != x || bounds.right != x + width || bounds.bottom != height) {
+            addDirtyBounds(icon, bounds);
+            bounds.set(x, 0, x + width, height);
+            addDirtyBounds(icon, bounds);
         }
 
-        if (needsDraw())
-            postInvalidate();
+        icon.onLayout();
+    }
+
+    private void drawIcons(Canvas canvas, List<IconData> icons) {
+        for (int i = 0; i < icons.size(); i++) {
+            IconData icon = icons.get(i);
+            Rect bounds = iconBounds.get(icon);
+            if (bounds != null && !bounds.isEmpty()) {
+                int overflow = icon.getDrawOverflow();
+                if (!canvas.quickReject(bounds.left - overflow, bounds.top, bounds.right + overflow, bounds.bottom, Canvas.EdgeType.AA))
+                    icon.draw(canvas, bounds.left, bounds.width());
+            }
+        }
     }
 
+    /**
+     * Draws all of the icons onto a canvas, without the burn-in offset.
+     *
+     * @param canvas the canvas to draw the icons on
+     */
+    private void drawIcons(Canvas canvas) {
+        drawIcons(canvas, leftIcons);
+        drawIcons(canvas, centerIcons);
+        drawIcons(canvas, rightIcons);
+    }
+
+    /**
+     * Positions the icons if they haven't been since something changed,
+     * in case the view is drawn before the next frame's callback.
+     */
+    private void validateLayout() {
+        if (!isLayoutValid) {
+            layoutIcons();
+            dirtyRect.setEmpty();
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        validateLayout();
+
+        if (backgroundImage != null && !isReducedQuality)
+            canvas.drawBitmap(backgroundImage, 0, 0, paint);
+        else canvas.drawColor(backgroundColor.val());
+
+        if (!isIconLayer) {
+            int offsetX = isBurnInProtection ? burnInOffsetX : 0, offsetY = isBurnInProtection ? burnInOffsetY : 0;
+            if (frameCache != null && isIdle()) {
+                updateFrameCache();
+                canvas.drawBitmap(frameCache, offsetX, offsetY, null);
+            } else {
+                isFrameCacheFullyDirty = true;
+
+                int saveCount = canvas.save();
+                canvas.translate(offsetX, offsetY);
+                drawIcons(canvas);
+                canvas.restoreToCount(saveCount);
+            }
+        }
+
+        //draws the icon layer, if it is being used
+        super.draw(canvas);
+
+        if (isFullyDirty || !dirtyRect.isEmpty() || !animations.isIdle())
+            requestFrame();
+    }
+
+    /**
+     * Draws the icons of the StatusView on top of its background, so that
+     * they can be cached (or invalidated) separately from it.
+     */
+    private class IconLayerView extends View {
+
+        IconLayerView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            validateLayout();
+            drawIcons(canvas);
+        }
+    }
+
+    public interface OnOpacityChangedListener {
+        /**
+         * Called when the status bar becomes fully opaque, or stops being so.
+         */
+        void onOpacityChanged(boolean isOpaque);
+    }
+
+    public interface OnInvalidateListener {
+        /**
+         * Called when a region of the view needs to be drawn again.
+         */
+        void onInvalidate(int left, int top, int right, int bottom);
+    }
 }
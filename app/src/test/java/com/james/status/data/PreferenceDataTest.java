@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.james.status.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PreferenceDataTest {
+
+    private static String[] roundTrip(Object[] array) {
+        return PreferenceData.decodeArray(PreferenceData.encodeArray(array));
+    }
+
+    @Test
+    public void encodeArray_isLengthPrefixed() {
+        assertEquals("1:a2:bc0:", PreferenceData.encodeArray(new String[]{"a", "bc", ""}));
+    }
+
+    @Test
+    public void decodeArray_roundTripsItems() {
+        String[] array = new String[]{"com.james.status", "Status", "a"};
+        assertArrayEquals(array, roundTrip(array));
+    }
+
+    @Test
+    public void decodeArray_roundTripsEmptyArray() {
+        assertEquals("", PreferenceData.encodeArray(new String[0]));
+        assertEquals(0, PreferenceData.decodeArray("").length);
+    }
+
+    @Test
+    public void decodeArray_roundTripsEmptyItems() {
+        String[] array = new String[]{"", "a", "", ""};
+        assertArrayEquals(array, roundTrip(array));
+    }
+
+    @Test
+    public void decodeArray_roundTripsSeparatorsAndDigits() {
+        String[] array = new String[]{"1:a", ":", "12:", "3", "::0:"};
+        assertArrayEquals(array, roundTrip(array));
+    }
+
+    @Test
+    public void decodeArray_writesNullItemsAsEmptyStrings() {
+        assertArrayEquals(new String[]{"a", "", "b"}, roundTrip(new String[]{"a", null, "b"}));
+    }
+
+    @Test
+    public void decodeArray_roundTripsNonStringItems() {
+        assertArrayEquals(new String[]{"1", "-20", "300"}, roundTrip(new Integer[]{1, -20, 300}));
+        assertArrayEquals(new String[]{"true", "false"}, roundTrip(new Boolean[]{true, false}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeArray_rejectsMissingSeparator() {
+        PreferenceData.decodeArray("1:a2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeArray_rejectsNonNumericLength() {
+        PreferenceData.decodeArray("a:b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeArray_rejectsTruncatedItem() {
+        PreferenceData.decodeArray("1:a5:bc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeArray_rejectsNegativeLength() {
+        PreferenceData.decodeArray("-1:a");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.james.status.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PreferenceKeysTest {
+
+    @Test
+    public void get_returnsSameInstanceForSameArgs() {
+        assertSame(PreferenceKeys.get("com.james.status.Test"), PreferenceKeys.get("com.james.status.Test"));
+        assertSame(PreferenceKeys.get("com.james.status", "Test"), PreferenceKeys.get("com.james.status", "Test"));
+        assertSame(PreferenceKeys.get("single"), PreferenceKeys.get(new String[]{"single"}));
+    }
+
+    @Test
+    public void get_returnsDifferentInstancesForDifferentArgs() {
+        assertNotSame(PreferenceKeys.get("a"), PreferenceKeys.get("b"));
+        assertNotSame(PreferenceKeys.get("a", "b"), PreferenceKeys.get("ab"));
+        assertNotSame(PreferenceKeys.get("a", "b"), PreferenceKeys.get("b", "a"));
+    }
+
+    @Test
+    public void get_copiesArgs() {
+        String[] args = new String[]{"copied", "args"};
+        PreferenceKeys keys = PreferenceKeys.get(args);
+        args[0] = "modified";
+
+        assertArrayEquals(new String[]{"copied", "args"}, keys.getArgs());
+    }
+
+    @Test
+    public void getKey_matchesFormattedName() {
+        PreferenceKeys keys = PreferenceKeys.get("com.james.status.Icon");
+        assertEquals(PreferenceData.ICON_VISIBILITY.getName("com.james.status.Icon"), keys.getKey(PreferenceData.ICON_VISIBILITY));
+
+        keys = PreferenceKeys.get("com.james.status", "com.james.status.Activity");
+        assertEquals(PreferenceData.APP_COLOR.getName("com.james.status", "com.james.status.Activity"), keys.getKey(PreferenceData.APP_COLOR));
+    }
+
+    @Test
+    public void getKey_returnsInternedKey() {
+        PreferenceKeys keys = PreferenceKeys.get("com.james.status.Interned");
+        String key = keys.getKey(PreferenceData.ICON_VISIBILITY);
+
+        assertSame(key, keys.getKey(PreferenceData.ICON_VISIBILITY));
+        assertSame(key, new String("com.james.status.Interned/VISIBILITY").intern());
+    }
+
+    @Test
+    public void get_evictsLeastRecentlyUsedInstances() {
+        PreferenceKeys evicted = PreferenceKeys.get("evicted");
+        PreferenceKeys retained = PreferenceKeys.get("retained");
+
+        for (int i = 0; i < PreferenceKeys.MAX_INSTANCES; i++) {
+            PreferenceKeys.get("filler" + i);
+            assertSame(retained, PreferenceKeys.get("retained"));
+        }
+
+        assertNotSame(evicted, PreferenceKeys.get("evicted"));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *    Copyright 2019 James Fenn
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.james.status.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimationTableTest {
+
+    private static final long DURATION = 200000000L;
+    private static final long START = 1000000000L;
+
+    private AnimationTable table;
+
+    @Before
+    public void setUp() {
+        table = new AnimationTable();
+    }
+
+    @Test
+    public void add_startsAtTarget() {
+        AnimationTable.FloatValue value = table.addFloat(5);
+
+        assertEquals(5, value.val(), 0);
+        assertTrue(value.isTarget());
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    public void next_startsFromTheFirstFrame() {
+        AnimationTable.FloatValue value = table.addFloat(0);
+        value.to(100);
+        assertFalse(table.isIdle());
+
+        table.next(START);
+        assertEquals(0, value.val(), 0);
+
+        table.next(START + DURATION / 2);
+        assertEquals(75, value.val(), 0);
+    }
+
+    @Test
+    public void next_decelerates() {
+        AnimationTable.FloatValue value = table.addFloat(0);
+        value.to(100);
+        table.next(START);
+
+        table.next(START + DURATION / 4);
+        assertEquals(43.75f, value.val(), 0.001f);
+
+        table.next(START + DURATION / 2);
+        assertEquals(75, value.val(), 0.001f);
+
+        table.next(START + (DURATION * 3) / 4);
+        assertEquals(93.75f, value.val(), 0.001f);
+    }
+
+    @Test
+    public void next_reachesTargetAfterDuration() {
+        AnimationTable.FloatValue value = table.addFloat(0);
+        value.to(100);
+        table.next(START);
+
+        table.next(START + DURATION);
+        assertEquals(100, value.val(), 0);
+        assertTrue(value.isTarget());
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    public void next_reachesTargetAfterDroppedFrames() {
+        AnimationTable.FloatValue value = table.addFloat(0);
+        value.to(100);
+        table.next(START);
+
+        table.next(START + DURATION * 10);
+        assertEquals(100, value.val(), 0);
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    public void next_roundsIntegers() {
+        AnimationTable.IntValue value = table.addInt(0);
+        value.to(10);
+        table.next(START);
+
+        table.next(START + DURATION / 2);
+        assertEquals(8, value.val());
+
+        table.next(START + DURATION);
+        assertEquals(10, value.val());
+    }
+
+    @Test
+    public void next_restartsFromCurrentValue() {
+        AnimationTable.FloatValue value = table.addFloat(0);
+        value.to(100);
+        table.next(START);
+        table.next(START + DURATION / 2);
+
+        value.to(0);
+        table.next(START + DURATION);
+        assertEquals(75, value.val(), 0);
+
+        table.next(START + DURATION + DURATION / 2);
+        assertEquals(18.75f, value.val(), 0.001f);
+    }
+
+    @Test
+    public void setAnimated_jumpsToTarget() {
+        AnimationTable.IntValue value = table.addInt(0);
+        table.setAnimated(false);
+        value.to(10);
+
+        table.next(START);
+        assertEquals(10, value.val());
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    public void getActiveCount_countsAnimatingValues() {
+        AnimationTable.FloatValue first = table.addFloat(0);
+        AnimationTable.FloatValue second = table.addFloat(0);
+        table.addFloat(0);
+
+        first.to(1);
+        second.to(1);
+        assertEquals(2, table.getActiveCount());
+
+        second.to(0);
+        table.next(START);
+        assertEquals(1, table.getActiveCount());
+    }
+
+    @Test
+    public void release_stopsAnimating() {
+        AnimationTable.FloatValue value = table.addFloat(0);
+        value.to(100);
+        assertEquals(1, table.getActiveCount());
+
+        value.release();
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    public void release_reusesSlot() {
+        AnimationTable.FloatValue first = table.addFloat(1);
+        AnimationTable.FloatValue second = table.addFloat(2);
+        int index = first.index;
+
+        first.release();
+        AnimationTable.IntValue third = table.addInt(3);
+
+        assertEquals(index, third.index);
+        assertEquals(3, third.val());
+        assertEquals(2, second.val(), 0);
+        assertTrue(third.isTarget());
+    }
+
+    @Test
+    public void add_growsBeyondInitialCapacity() {
+        AnimationTable.IntValue[] values = new AnimationTable.IntValue[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = table.addInt(0);
+            values[i].to(i);
+        }
+
+        table.next(START);
+        table.next(START + DURATION);
+
+        for (int i = 0; i < values.length; i++)
+            assertEquals(i, values[i].val());
+
+        assertTrue(table.isIdle());
+    }
+}